@@ -7,6 +7,7 @@ package io.v.rx;
 import org.robotninjas.concurrent.FluentFutures;
 
 import io.v.v23.InputChannel;
+import io.v.v23.InputChannels;
 import io.v.v23.verror.EndOfFileException;
 import lombok.experimental.UtilityClass;
 import rx.Observable;
@@ -15,18 +16,23 @@ import rx.observables.ConnectableObservable;
 
 @UtilityClass
 public class RxInputChannel {
+    private static final int BATCH_SIZE = 64;
+
     /**
      * Wraps an {@link io.v.v23.InputChannel} in a connectable observable that produces the same
-     * elements.
+     * elements. Elements are received in batches where the channel supports it (see
+     * {@link InputChannels#recvBatch}).
      */
     public static <T> ConnectableObservable<T> wrap(final InputChannel<T> i) {
         return Observable.<T>create(s -> connect(i, s)).publish();
     }
 
     private static <T> void connect(final InputChannel<T> i, final Subscriber<? super T> s) {
-        FluentFutures.from(i.recv())
-                .onSuccess(r -> {
-                    s.onNext(r);
+        FluentFutures.from(InputChannels.recvBatch(i, BATCH_SIZE))
+                .onSuccess(batch -> {
+                    for (final T r : batch) {
+                        s.onNext(r);
+                    }
                     connect(i, s);
                 })
                 .onFailure(t -> {
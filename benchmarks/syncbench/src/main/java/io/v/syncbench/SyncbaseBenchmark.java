@@ -7,6 +7,7 @@ package io.v.syncbench;
 import com.google.caliper.AfterExperiment;
 import com.google.caliper.BeforeExperiment;
 import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
 import com.google.caliper.runner.CaliperMain;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -46,6 +47,9 @@ import static io.v.v23.VFutures.sync;
  * </ul>
  */
 public class SyncbaseBenchmark {
+    // Number of rows returned by the query benchmarks.
+    @Param({"1", "64"})
+    int numRows;
 
     Server syncbaseServer;
     byte[] imageBytes;
@@ -74,7 +78,11 @@ public class SyncbaseBenchmark {
         database = app.getNoSqlDatabase("foo", null);
         sync(database.create(baseContext, null));
         sync(database.getTable("someTable").create(baseContext, null));
-        sync(database.getTable("someTable").put(baseContext, "testKey", imageBytes, byte[].class));
+        Table table = database.getTable("someTable");
+        sync(table.put(baseContext, "testKey", imageBytes, byte[].class));
+        for (int i = 1; i < numRows; i++) {
+            sync(table.put(baseContext, "testKey" + i, imageBytes, byte[].class));
+        }
     }
 
     @AfterExperiment
@@ -106,6 +114,19 @@ public class SyncbaseBenchmark {
         }
     }
 
+    @Benchmark
+    public void benchmarkImageFetchingByQueryWithReadAhead(int reps) throws VException {
+        for (int i = 0; i < reps; i++) {
+            DatabaseCore.QueryResults stream = sync(database.exec(baseContext, "select v from someTable"));
+            for (List<VdlAny> result : InputChannels.asIterable(stream, 16)) {
+                byte[] fetchedBytes = (byte[]) result.get(0).getElem();
+                if (!Arrays.equals(fetchedBytes, imageBytes)) {
+                    throw new IllegalStateException("fetched bytes do not match");
+                }
+            }
+        }
+    }
+
     public static void main(String[] args) {
         CaliperMain.main(SyncbaseBenchmark.class, args);
     }
@@ -0,0 +1,125 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.vombench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.v.v23.vdl.VdlType;
+import io.v.v23.vdl.VdlValue;
+import io.v.v23.verror.VException;
+import io.v.v23.vom.BinaryDecoder;
+import io.v.v23.vom.BinaryEncoder;
+import io.v.v23.vom.Constants;
+import io.v.v23.vom.ConversionException;
+import io.v.v23.vom.MessageDecoder;
+import io.v.v23.vom.MessageEncoder;
+import io.v.v23.vom.Version;
+import io.v.v23.vom.VomUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the encoding and decoding throughput of values of each of the {@link Samples}.
+ * <p>
+ * Run with {@code -prof gc} to also report the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CodecBenchmark {
+    @Param
+    private Samples sample;
+
+    @Param({"80", "81"})
+    private String version;
+
+    private Type type;
+    private VdlType vdlType;
+    private Object value;
+    private Version vomVersion;
+    private byte[] encoded;
+    private ByteArrayOutputStream out;
+    private MessageEncoder messageEncoder;
+    private MessageDecoder messageDecoder;
+
+    @Setup
+    public void setUp() throws Exception {
+        type = sample.getType();
+        vdlType = sample.getVdlType();
+        value = sample.getValue();
+        vomVersion = "80".equals(version) ? Constants.VERSION_80 : Constants.VERSION_81;
+        out = new ByteArrayOutputStream();
+        new BinaryEncoder(out, vomVersion).encodeValue(vdlType, value);
+        encoded = out.toByteArray();
+        messageEncoder = new MessageEncoder(vomVersion);
+        messageDecoder = new MessageDecoder();
+    }
+
+    /**
+     * Encodes the value into a new stream, including its type definitions.
+     */
+    @Benchmark
+    public int encode() throws IOException {
+        out.reset();
+        new BinaryEncoder(out, vomVersion).encodeValue(vdlType, value);
+        return out.size();
+    }
+
+    /**
+     * Decodes a stream holding the value and its type definitions.
+     */
+    @Benchmark
+    public Object decode() throws IOException, ConversionException {
+        return new BinaryDecoder(new ByteArrayInputStream(encoded)).decodeValue(type);
+    }
+
+    /**
+     * Decodes a stream holding the value into its generic {@link VdlValue} representation.
+     */
+    @Benchmark
+    public Object decodeVdlValue() throws IOException, ConversionException {
+        return new BinaryDecoder(new ByteArrayInputStream(encoded)).decodeValue(VdlValue.class);
+    }
+
+    /**
+     * Encodes the value with a {@link MessageEncoder}, which reuses the type definitions of
+     * previously encoded messages.
+     */
+    @Benchmark
+    public byte[] encodeMessage() throws VException {
+        return messageEncoder.encode(value, vdlType);
+    }
+
+    /**
+     * Decodes the value with a {@link MessageDecoder}, which reuses the type definitions of
+     * previously decoded messages.
+     */
+    @Benchmark
+    public Object decodeMessage() throws VException {
+        return messageDecoder.decode(encoded, type);
+    }
+
+    @Benchmark
+    public VdlValue valueOf() throws VException {
+        return VomUtil.valueOf(value, vdlType);
+    }
+}
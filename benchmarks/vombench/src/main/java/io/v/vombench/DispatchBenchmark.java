@@ -0,0 +1,139 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.vombench;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.v.v23.context.VContext;
+import io.v.v23.rpc.ReflectInvoker;
+import io.v.v23.rpc.ServerCall;
+import io.v.v23.rpc.StreamServerCall;
+import io.v.v23.vdl.MultiReturn;
+import io.v.v23.vdl.VServer;
+import io.v.v23.verror.VException;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the dispatch of a call by {@link ReflectInvoker}: looking up the method, invoking the
+ * server wrapper reflectively and collecting the multiple return values.
+ * <p>
+ * The server interface and its wrapper are written by hand in the shape of generated code.  The
+ * invoker runs the methods on a direct executor, with a context that is never canceled, so no
+ * native runtime is needed.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DispatchBenchmark {
+    /**
+     * The multiple return values of {@link EchoServer#get}.
+     */
+    @MultiReturn
+    public static class GetOut {
+        public String first;
+        public long second;
+    }
+
+    @VServer(serverWrapper = EchoServerWrapper.class)
+    public interface EchoServer {
+        ListenableFuture<GetOut> get(VContext ctx, ServerCall call, String key);
+    }
+
+    public static final class EchoServerWrapper {
+        private final EchoServer server;
+
+        public EchoServerWrapper(EchoServer server) {
+            this.server = server;
+        }
+
+        public ListenableFuture<GetOut> get(VContext ctx, StreamServerCall call, String key) {
+            return server.get(ctx, call, key);
+        }
+    }
+
+    public static class EchoServerImpl implements EchoServer {
+        @Override
+        public ListenableFuture<GetOut> get(VContext ctx, ServerCall call, String key) {
+            GetOut out = new GetOut();
+            out.first = key;
+            out.second = key.length();
+            return Futures.immediateFuture(out);
+        }
+    }
+
+    /**
+     * A context without a native counterpart, which is never canceled.
+     */
+    private static final class StubContext extends VContext {
+        StubContext() {
+            super(0, 0);
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return false;
+        }
+
+        @Override
+        protected void finalize() {
+            // Nothing to release.
+        }
+    }
+
+    private final Executor executor = MoreExecutors.directExecutor();
+    private final EchoServer server = new EchoServerImpl();
+    private final Object[] args = new Object[]{"key"};
+    private VContext ctx;
+    private ReflectInvoker invoker;
+
+    @Setup
+    public void setUp() throws VException {
+        ctx = new StubContext();
+        invoker = new ReflectInvoker(server, executor, null);
+    }
+
+    /**
+     * A call on an existing invoker, as for a service object passed to the server directly.
+     */
+    @Benchmark
+    public Object[] invoke() throws Exception {
+        return invoker.invoke(ctx, null, "get", args).get();
+    }
+
+    /**
+     * A call on an existing invoker with the arguments decoded after the two elements reserved for
+     * the context and the call, as the server makes it.
+     */
+    @Benchmark
+    public Object[] invokeInPlace() throws Exception {
+        return invoker.invokeInPlace(ctx, null, "get", new Object[]{null, null, "key"}).get();
+    }
+
+    /**
+     * A call on a new invoker, as for a service object returned by a dispatcher.
+     */
+    @Benchmark
+    public Object[] newInvokerAndInvoke() throws Exception {
+        return new ReflectInvoker(server, executor, null).invoke(ctx, null, "get", args).get();
+    }
+}
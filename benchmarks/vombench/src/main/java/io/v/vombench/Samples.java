@@ -0,0 +1,154 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.vombench;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.reflect.TypeToken;
+
+import io.v.v23.vdl.Types;
+import io.v.v23.vdl.VdlAny;
+import io.v.v23.vdl.VdlEnum;
+import io.v.v23.vdl.VdlField;
+import io.v.v23.vdl.VdlInt64;
+import io.v.v23.vdl.VdlOptional;
+import io.v.v23.vdl.VdlString;
+import io.v.v23.vdl.VdlStruct;
+import io.v.v23.vdl.VdlType;
+import io.v.v23.vdl.VdlUnion;
+import io.v.v23.vdl.VdlValue;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sample values of the different VDL kinds used by the benchmarks.
+ * <p>
+ * Values of kinds that have a natural Java representation are plain Java objects whose VDL type
+ * is derived by reflection; the remaining kinds (enum, optional and union) use the generic
+ * {@link VdlValue} representation, as no generated classes are available to the benchmarks.
+ */
+public enum Samples {
+    BOOL(Boolean.class, true),
+    INT64(Long.class, 1234567890123L),
+    FLOAT64(Double.class, Math.PI),
+    STRING(String.class, "The quick brown fox jumps over the lazy dog"),
+    BYTES(byte[].class, new byte[256]),
+    LIST(new TypeToken<List<String>>(){}.getType(),
+            ImmutableList.of("alpha", "beta", "gamma", "delta", "epsilon")),
+    PRIMITIVE_LIST(long[].class, new long[]{1, -1, 1 << 20, Long.MAX_VALUE, Long.MIN_VALUE}),
+    SET(new TypeToken<Set<String>>(){}.getType(), ImmutableSet.of("a", "b", "c", "d")),
+    MAP(new TypeToken<Map<String, Long>>(){}.getType(),
+            ImmutableMap.of("one", 1L, "two", 2L, "three", 3L)),
+    STRUCT(Item.class, Item.create(1)),
+    NESTED_STRUCT(Order.class, Order.create(10)),
+    ANY(VdlAny.class, new VdlAny(Item.class, Item.create(2))),
+    ENUM(VdlValue.class, new VdlEnum(Types.enumOf("Red", "Green", "Blue"), "Green")),
+    OPTIONAL(VdlValue.class, newOptional()),
+    UNION(VdlValue.class, newUnion());
+
+    /**
+     * A flat struct.
+     */
+    public static class Item {
+        private long id;
+        private String name;
+        private boolean active;
+        private double price;
+        private List<String> tags;
+
+        public Item() {
+        }
+
+        static Item create(long id) {
+            Item item = new Item();
+            item.id = id;
+            item.name = "item-" + id;
+            item.active = true;
+            item.price = id * 1.5;
+            item.tags = ImmutableList.of("new", "sale");
+            return item;
+        }
+    }
+
+    /**
+     * A struct that nests other structs.
+     */
+    public static class Order {
+        private String customer;
+        private Item first;
+        private List<Item> items;
+        private Map<String, Item> byName;
+
+        public Order() {
+        }
+
+        static Order create(int numItems) {
+            Order order = new Order();
+            order.customer = "customer";
+            order.items = new ArrayList<Item>(numItems);
+            ImmutableMap.Builder<String, Item> byName = ImmutableMap.builder();
+            for (int i = 0; i < numItems; i++) {
+                Item item = Item.create(i);
+                order.items.add(item);
+                byName.put(item.name, item);
+            }
+            order.first = order.items.get(0);
+            order.byName = byName.build();
+            return order;
+        }
+    }
+
+    private static VdlOptional<VdlStruct> newOptional() {
+        VdlType pointType = Types.structOf(
+                new VdlField("X", Types.INT64), new VdlField("Y", Types.INT64));
+        VdlStruct point = new VdlStruct(pointType);
+        point.assignField("X", new VdlInt64(3));
+        point.assignField("Y", new VdlInt64(-4));
+        return new VdlOptional<VdlStruct>(Types.optionalOf(pointType), point);
+    }
+
+    private static VdlUnion newUnion() {
+        VdlType type = Types.unionOf(
+                new VdlField("Number", Types.INT64), new VdlField("Text", Types.STRING));
+        return new VdlUnion(type, 1, Types.STRING, new VdlString("union"));
+    }
+
+    private final Type type;
+    private final Object value;
+
+    Samples(Type type, Object value) {
+        this.type = type;
+        this.value = value;
+    }
+
+    /**
+     * Returns the Java type of the sample value.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the VDL type of the sample value.
+     */
+    public VdlType getVdlType() {
+        if (value instanceof VdlValue && type == VdlValue.class) {
+            return ((VdlValue) value).vdlType();
+        }
+        return Types.getVdlTypeFromReflect(type);
+    }
+
+    /**
+     * Returns the sample value.
+     */
+    public Object getValue() {
+        return value;
+    }
+}
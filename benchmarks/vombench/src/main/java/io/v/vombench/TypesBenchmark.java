@@ -0,0 +1,91 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.vombench;
+
+import com.google.common.reflect.TypeToken;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.v.v23.vdl.Types;
+import io.v.v23.vdl.VdlField;
+import io.v.v23.vdl.VdlType;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of VDL type look-ups and interning when many threads use them at
+ * once, as is the case for a server decoding concurrent RPCs.
+ * <p>
+ * The thread count can be changed on the command line with {@code -t}, e.g., {@code -t 1} for
+ * the uncontended baseline.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class TypesBenchmark {
+    /**
+     * A plain Java class whose VDL type is derived by reflection.
+     */
+    public static class Item {
+        private long id;
+        private String name;
+        private List<String> tags;
+        private Map<String, Double> scores;
+    }
+
+    private static final int WIDE_STRUCT_FIELDS = 200;
+
+    private Type listType;
+    private VdlField[] wideFields;
+
+    @Setup
+    public void setUp() {
+        listType = new TypeToken<List<Map<String, Long>>>(){}.getType();
+        wideFields = new VdlField[WIDE_STRUCT_FIELDS];
+        for (int i = 0; i < wideFields.length; i++) {
+            wideFields[i] = new VdlField("Field" + i, i % 2 == 0 ? Types.INT64 : Types.STRING);
+        }
+        // Populate the caches, so that the benchmarks measure the steady state.
+        Types.getVdlTypeFromReflect(Item.class);
+        Types.getVdlTypeFromReflect(listType);
+        Types.structOf(wideFields);
+    }
+
+    @Benchmark
+    public VdlType lookupClass() {
+        return Types.getVdlTypeFromReflect(Item.class);
+    }
+
+    @Benchmark
+    public VdlType lookupParameterizedType() {
+        return Types.getVdlTypeFromReflect(listType);
+    }
+
+    /**
+     * Builds and interns a struct type with many fields; the resulting type is already known,
+     * as happens when the decoder builds types received from the wire.
+     */
+    @Benchmark
+    public VdlType internWideStruct() {
+        return Types.structOf(wideFields);
+    }
+}
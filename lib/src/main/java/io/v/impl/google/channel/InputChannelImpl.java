@@ -4,21 +4,35 @@
 
 package io.v.impl.google.channel;
 
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import io.v.impl.google.ListenableFutureCallback;
+import io.v.v23.BatchInputChannel;
 import io.v.v23.InputChannel;
 import io.v.v23.context.VContext;
 import io.v.v23.rpc.Callback;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * An implementation of {@link InputChannel} that reads data using Go recv function.
+ * <p>
+ * {@link #recvBatch} drains all the items that are ready in the Go channel in a single JNI call.
  */
-class InputChannelImpl<T> implements InputChannel<T> {
+class InputChannelImpl<T> implements BatchInputChannel<T> {
+    // Cleared if the loaded native library predates nativeRecvBatch, in which case batches are
+    // received one item at a time.
+    private static volatile boolean nativeRecvBatchSupported = true;
+
     private final VContext ctx;
     private final long nativeRef;
 
     private native void nativeRecv(long nativeRef, Callback<T> callback);
+    private native void nativeRecvBatch(long nativeRef, int max, Callback<List<T>> callback);
     private native void nativeFinalize(long nativeRef);
 
     private InputChannelImpl(VContext ctx, long nativeRef) {
@@ -32,6 +46,25 @@ class InputChannelImpl<T> implements InputChannel<T> {
         return callback.getFuture(ctx);
     }
     @Override
+    public ListenableFuture<List<T>> recvBatch(int max) {
+        Preconditions.checkArgument(max > 0, "max must be positive: %s", max);
+        if (nativeRecvBatchSupported) {
+            ListenableFutureCallback<List<T>> callback = new ListenableFutureCallback<>();
+            try {
+                nativeRecvBatch(nativeRef, max, callback);
+                return callback.getFuture(ctx);
+            } catch (UnsatisfiedLinkError e) {
+                nativeRecvBatchSupported = false;
+            }
+        }
+        return Futures.transform(recv(), new Function<T, List<T>>() {
+            @Override
+            public List<T> apply(T item) {
+                return Collections.singletonList(item);
+            }
+        });
+    }
+    @Override
     protected void finalize() {
         nativeFinalize(nativeRef);
     }
@@ -0,0 +1,174 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.impl.google.rpc;
+
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import io.v.v23.context.VContext;
+import io.v.v23.rpc.MethodMetrics;
+import io.v.v23.rpc.ReflectInvoker;
+import io.v.v23.rpc.StreamServerCall;
+import io.v.v23.vdl.VdlValue;
+import io.v.v23.verror.VException;
+import io.v.v23.vom.VomUtil;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * PreparedMethod holds everything the server needs to dispatch calls to a method of a
+ * {@link ReflectInvoker}: the VOM-encoded method tags and the argument and result types.
+ * <p>
+ * The methods of a {@link ReflectInvoker} depend only on the class of its service object, so
+ * prepared methods are cached per (service class, method) pair and shared by all the invokers
+ * for objects of that class, like the method metadata in {@link ReflectInvoker}.  A call to a
+ * prepared method is then a single decode of the arguments, the invocation and a single encode
+ * of the results.  Every call is recorded in the {@link MethodMetrics} of the method.
+ */
+final class PreparedMethod {
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<String, PreparedMethod>> cache =
+            new ConcurrentHashMap<Class<?>, ConcurrentMap<String, PreparedMethod>>();
+
+    private final String name;
+    private final byte[][] vomTags;
+    private final Type[] argTypes;
+    private final Type[] resultTypes;
+    private final MethodMetrics metrics;
+
+    /**
+     * Returns the cached prepared method, or {@code null} if the method hasn't been prepared yet.
+     */
+    static PreparedMethod getCached(ReflectInvoker invoker, String method) {
+        ConcurrentMap<String, PreparedMethod> methods = cache.get(invoker.getServerClass());
+        return methods != null ? methods.get(method) : null;
+    }
+
+    /**
+     * Returns a new {@link ListenableFuture} whose result is the prepared method with the given
+     * name.
+     */
+    static ListenableFuture<PreparedMethod> prepare(
+            final ReflectInvoker invoker, VContext ctx, final String method) {
+        PreparedMethod prepared = getCached(invoker, method);
+        if (prepared != null) {
+            return Futures.immediateFuture(prepared);
+        }
+        Class<?> serverClass = invoker.getServerClass();
+        ConcurrentMap<String, PreparedMethod> methods = cache.get(serverClass);
+        if (methods == null) {
+            methods = new ConcurrentHashMap<String, PreparedMethod>();
+            ConcurrentMap<String, PreparedMethod> existing =
+                    cache.putIfAbsent(serverClass, methods);
+            if (existing != null) {
+                methods = existing;
+            }
+        }
+        final ConcurrentMap<String, PreparedMethod> invokerMethods = methods;
+        return Futures.transform(Futures.<Object>allAsList(
+                        invoker.getMethodTags(ctx, method),
+                        invoker.getArgumentTypes(ctx, method),
+                        invoker.getResultTypes(ctx, method)),
+                new AsyncFunction<List<Object>, PreparedMethod>() {
+                    @Override
+                    public ListenableFuture<PreparedMethod> apply(List<Object> input)
+                            throws Exception {
+                        PreparedMethod prepared = new PreparedMethod(method,
+                                (VdlValue[]) input.get(0), (Type[]) input.get(1),
+                                (Type[]) input.get(2), invoker.getMetrics(method));
+                        invokerMethods.putIfAbsent(method, prepared);
+                        return Futures.immediateFuture(prepared);
+                    }
+                });
+    }
+
+    private PreparedMethod(String name, VdlValue[] tags, Type[] argTypes, Type[] resultTypes,
+                           MethodMetrics metrics) throws VException {
+        this.name = name;
+        this.vomTags = new byte[tags.length][];
+        for (int i = 0; i < tags.length; ++i) {
+            vomTags[i] = VomUtil.encode(tags[i], tags[i].vdlType());
+        }
+        this.argTypes = argTypes;
+        this.resultTypes = resultTypes;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the VOM-encoded method tags.
+     */
+    byte[][] getVomTags() {
+        return vomTags;
+    }
+
+    /**
+     * Decodes the provided VOM-encoded arguments, invokes the method and returns a new
+     * {@link ListenableFuture} whose result are the VOM-encoded results.
+     */
+    ListenableFuture<byte[][]> invoke(ReflectInvoker invoker, VContext ctx,
+                                      StreamServerCall call, byte[][] vomArgs) {
+        metrics.callStarted();
+        if (argTypes.length != vomArgs.length) {
+            VException e = new VException(String.format(
+                    "Wrong number of args, want %d, got %d", argTypes.length, vomArgs.length));
+            metrics.callFinished(e);
+            return Futures.immediateFailedFuture(e);
+        }
+        long decodeStartNanos = System.nanoTime();
+        // The arguments are decoded after the two elements the invoker reserves for the context
+        // and the call, so that it doesn't have to copy them.
+        Object[] args = new Object[2 + argTypes.length];
+        try {
+            for (int i = 0; i < argTypes.length; ++i) {
+                args[2 + i] = VomUtil.decode(vomArgs[i], argTypes[i]);
+            }
+        } catch (VException e) {
+            metrics.callFinished(e);
+            return Futures.immediateFailedFuture(e);
+        }
+        metrics.getDecodeLatency().record(System.nanoTime() - decodeStartNanos);
+        ListenableFuture<byte[][]> result = Futures.transform(
+                invoker.invokeInPlace(ctx, call, name, args),
+                new AsyncFunction<Object[], byte[][]>() {
+                    @Override
+                    public ListenableFuture<byte[][]> apply(Object[] results) throws Exception {
+                        if (resultTypes.length != results.length) {
+                            throw new VException(String.format(
+                                    "Wrong number of results, want %d, got %d",
+                                    resultTypes.length, results.length));
+                        }
+                        long encodeStartNanos = System.nanoTime();
+                        byte[][] vomResults = new byte[resultTypes.length][];
+                        for (int i = 0; i < resultTypes.length; ++i) {
+                            vomResults[i] = VomUtil.encode(results[i], resultTypes[i]);
+                        }
+                        metrics.getEncodeLatency().record(System.nanoTime() - encodeStartNanos);
+                        return Futures.immediateFuture(vomResults);
+                    }
+                });
+        recordFinish(result, metrics);
+        return result;
+    }
+
+    /**
+     * Records the end of the call whose result is the provided future in the given metrics.
+     */
+    static void recordFinish(ListenableFuture<?> result, final MethodMetrics metrics) {
+        Futures.addCallback(result, new FutureCallback<Object>() {
+            @Override
+            public void onSuccess(Object result) {
+                metrics.callFinished(null);
+            }
+            @Override
+            public void onFailure(Throwable t) {
+                metrics.callFinished(t);
+            }
+        });
+    }
+}
@@ -7,14 +7,17 @@ package io.v.impl.google.rpc;
 import com.google.common.util.concurrent.AsyncFunction;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import io.v.v23.OutputChannel;
 import io.v.v23.context.VContext;
 import io.v.v23.naming.GlobReply;
 import io.v.v23.rpc.Dispatcher;
 import io.v.v23.rpc.Invoker;
+import io.v.v23.rpc.MethodMetrics;
 import io.v.v23.rpc.ReflectInvoker;
 import io.v.v23.rpc.ServerCall;
+import io.v.v23.rpc.ServerMetrics;
 import io.v.v23.rpc.ServiceObjectWithAuthorizer;
 import io.v.v23.rpc.StreamServerCall;
 import io.v.v23.security.Authorizer;
@@ -33,8 +36,22 @@ class ServerRPCHelper {
     private static native long nativeGoInvoker(Object serviceObject) throws VException;
     private static native long nativeGoAuthorizer(Object authorizer) throws VException;
 
-    // Helper function for getting tags from the provided invoker.
+    // Helper function for getting tags from the provided invoker.  The tags of ReflectInvoker
+    // methods are encoded only once; see PreparedMethod.
     static ListenableFuture<byte[][]> prepare(Invoker invoker, VContext ctx, String method) {
+        if (invoker instanceof ReflectInvoker) {
+            PreparedMethod prepared = PreparedMethod.getCached((ReflectInvoker) invoker, method);
+            if (prepared != null) {
+                return Futures.immediateFuture(prepared.getVomTags());
+            }
+            return Futures.transform(PreparedMethod.prepare((ReflectInvoker) invoker, ctx, method),
+                    new AsyncFunction<PreparedMethod, byte[][]>() {
+                        @Override
+                        public ListenableFuture<byte[][]> apply(PreparedMethod prepared) {
+                            return Futures.immediateFuture(prepared.getVomTags());
+                        }
+                    });
+        }
         return Futures.transform(invoker.getMethodTags(ctx, method),
                 new AsyncFunction<VdlValue[], byte[][]>() {
                     @Override
@@ -48,45 +65,90 @@ class ServerRPCHelper {
                 });
     }
 
-    // Helper function for invoking a method on the provided invoker.
+    // Helper function for invoking a method on the provided invoker.  Calls to other invokers
+    // than ReflectInvokers are recorded in the metrics of the invoker class.
     static ListenableFuture<byte[][]> invoke(final Invoker invoker, final VContext ctx,
                                              final StreamServerCall call,
                                              final String method, final byte[][] vomArgs) {
+        if (invoker instanceof ReflectInvoker) {
+            final ReflectInvoker reflectInvoker = (ReflectInvoker) invoker;
+            PreparedMethod prepared = PreparedMethod.getCached(reflectInvoker, method);
+            if (prepared != null) {
+                return prepared.invoke(reflectInvoker, ctx, call, vomArgs);
+            }
+            return Futures.transform(PreparedMethod.prepare(reflectInvoker, ctx, method),
+                    new AsyncFunction<PreparedMethod, byte[][]>() {
+                        @Override
+                        public ListenableFuture<byte[][]> apply(PreparedMethod prepared) {
+                            return prepared.invoke(reflectInvoker, ctx, call, vomArgs);
+                        }
+                    });
+        }
         return Futures.transform(invoker.getArgumentTypes(ctx, method),
                 new AsyncFunction<Type[], byte[][]>() {
                     @Override
-                    public ListenableFuture<byte[][]> apply(Type[] argTypes) throws Exception {
-                        if (argTypes.length != vomArgs.length) {
+                    public ListenableFuture<byte[][]> apply(Type[] argTypes) {
+                        // The metrics are created only once the invoker has resolved the
+                        // method, so that unknown method names don't add metrics.
+                        MethodMetrics metrics = ServerMetrics.getMethodMetrics(
+                                invoker.getClass().getName(), method);
+                        metrics.callStarted();
+                        ListenableFuture<byte[][]> result;
+                        try {
+                            result = invokeResolved(
+                                    invoker, ctx, call, method, argTypes, vomArgs, metrics);
+                        } catch (Exception e) {
+                            result = Futures.immediateFailedFuture(e);
+                        }
+                        PreparedMethod.recordFinish(result, metrics);
+                        return result;
+                    }
+                });
+    }
+
+    // Decodes the arguments, invokes the method and encodes the results, for an invoker that
+    // has resolved the argument types of the method.
+    private static ListenableFuture<byte[][]> invokeResolved(
+            final Invoker invoker, final VContext ctx, final StreamServerCall call,
+            final String method, Type[] argTypes, byte[][] vomArgs, final MethodMetrics metrics)
+            throws VException {
+        if (argTypes.length != vomArgs.length) {
+            throw new VException(String.format(
+                    "Wrong number of args, want %d, got %d", argTypes.length, vomArgs.length));
+        }
+        long decodeStartNanos = System.nanoTime();
+        Object[] args = new Object[argTypes.length];
+        for (int i = 0; i < argTypes.length; ++i) {
+            args[i] = VomUtil.decode(vomArgs[i], argTypes[i]);
+        }
+        final long handlerStartNanos = System.nanoTime();
+        metrics.getDecodeLatency().record(handlerStartNanos - decodeStartNanos);
+        ListenableFuture<Object[]> invocation = invoker.invoke(ctx, call, method, args);
+        invocation.addListener(new Runnable() {
+            @Override
+            public void run() {
+                metrics.getHandlerLatency().record(System.nanoTime() - handlerStartNanos);
+            }
+        }, MoreExecutors.directExecutor());
+        return Futures.transform(Futures.<Object>allAsList(
+                        invoker.getResultTypes(ctx, method), invocation),
+                new AsyncFunction<List<Object>, byte[][]>() {
+                    @Override
+                    public ListenableFuture<byte[][]> apply(List<Object> input) throws Exception {
+                        Type[] resultTypes = (Type[]) input.get(0);
+                        Object[] results = (Object[]) input.get(1);
+                        if (resultTypes.length != results.length) {
                             throw new VException(String.format(
-                                    "Wrong number of args, want %d, got %d",
-                                    argTypes.length, vomArgs.length));
+                                    "Wrong number of results, want %d, got %d",
+                                    resultTypes.length, results.length));
                         }
-                        final Object[] args = new Object[argTypes.length];
-                        for (int i = 0; i < argTypes.length; ++i) {
-                            args[i] = VomUtil.decode(vomArgs[i], argTypes[i]);
+                        long encodeStartNanos = System.nanoTime();
+                        byte[][] vomResults = new byte[resultTypes.length][];
+                        for (int i = 0; i < resultTypes.length; ++i) {
+                            vomResults[i] = VomUtil.encode(results[i], resultTypes[i]);
                         }
-                        return Futures.transform(Futures.<Object>allAsList(
-                                        invoker.getResultTypes(ctx, method),
-                                        invoker.invoke(ctx, call, method, args)),
-                                new AsyncFunction<List<Object>, byte[][]>() {
-                                    @Override
-                                    public ListenableFuture<byte[][]> apply(List<Object> input)
-                                            throws Exception {
-                                        Type[] resultTypes = (Type[]) input.get(0);
-                                        Object[] results = (Object[]) input.get(1);
-                                        if (resultTypes.length != results.length) {
-                                            throw new VException(String.format(
-                                                    "Wrong number of results, want %d, got %d",
-                                                    resultTypes.length, results.length));
-                                        }
-                                        byte[][] vomResults = new byte[resultTypes.length][];
-                                        for (int i = 0; i < resultTypes.length; ++i) {
-                                            vomResults[i] =
-                                                    VomUtil.encode(results[i], resultTypes[i]);
-                                        }
-                                        return Futures.immediateFuture(vomResults);
-                                    }
-                                });
+                        metrics.getEncodeLatency().record(System.nanoTime() - encodeStartNanos);
+                        return Futures.immediateFuture(vomResults);
                     }
                 });
     }
@@ -117,6 +179,10 @@ class ServerRPCHelper {
         if (obj == null) {
             throw new VException("Null service object returned by Java's dispatcher");
         }
+        // Creating a ReflectInvoker only instantiates the server wrappers of the object: the
+        // wrapper constructors, the method table and the prepared methods are cached per class.
+        // Invokers themselves aren't cached: an invoker references its object, so it can't be
+        // the value of a cache keyed weakly on the object.
         Invoker invoker = obj instanceof Invoker ? (Invoker) obj : new ReflectInvoker(obj);
         Authorizer auth = result.getAuthorizer();
         return new long[] { nativeGoInvoker(invoker), auth == null ? 0 : nativeGoAuthorizer(auth) };
@@ -14,13 +14,16 @@ import io.v.v23.context.VContext;
 import io.v.v23.rpc.Callback;
 import io.v.v23.rpc.Stream;
 import io.v.v23.verror.VException;
-import io.v.v23.vom.VomUtil;
+import io.v.v23.vom.MessageDecoder;
+import io.v.v23.vom.MessageEncoder;
 
 import java.lang.reflect.Type;
 
 public class StreamImpl implements Stream {
     private final VContext ctx;
     private final long nativeRef;
+    private final MessageEncoder encoder;
+    private final MessageDecoder decoder;
 
     private native void nativeSend(long nativeRef, byte[] vomItem, Callback<Void> callback);
     private native void nativeRecv(long nativeRef, Callback<byte[]> callback);
@@ -29,13 +32,15 @@ public class StreamImpl implements Stream {
     private StreamImpl(VContext ctx, long nativeRef) {
         this.ctx = ctx;
         this.nativeRef = nativeRef;
+        this.encoder = new MessageEncoder();
+        this.decoder = new MessageDecoder();
     }
 
     @Override
     public ListenableFuture<Void> send(Object item, Type type) {
         ListenableFutureCallback<Void> callback = new ListenableFutureCallback<>();
         try {
-            byte[] vomItem = VomUtil.encode(item, type);
+            byte[] vomItem = encoder.encode(item, type);
             nativeSend(nativeRef, vomItem, callback);
         } catch (VException e) {
             callback.onFailure(e);
@@ -51,7 +56,7 @@ public class StreamImpl implements Stream {
                         new AsyncFunction<byte[], Object>() {
                     @Override
                     public ListenableFuture<Object> apply(byte[] result) throws Exception {
-                        return Futures.immediateFuture(VomUtil.decode(result, type));
+                        return Futures.immediateFuture(decoder.decode(result, type));
                     }
                 }));
     }
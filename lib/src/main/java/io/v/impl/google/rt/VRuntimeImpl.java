@@ -8,6 +8,9 @@ import com.google.common.util.concurrent.AsyncFunction;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
@@ -116,6 +119,9 @@ public class VRuntimeImpl implements VRuntime {
     @Override
     public VContext withNewServer(VContext ctx, String name, Dispatcher disp, RpcServerOptions opts)
             throws VException {
+        if (opts != null && (opts.executor() != null || !opts.methodExecutors().isEmpty())) {
+            disp = new ExecutorDispatcher(disp, opts.executor(), opts.methodExecutors());
+        }
         return nativeWithNewServer(ctx, name, disp, opts);
     }
     // Deprecated in interface.
@@ -130,7 +136,14 @@ public class VRuntimeImpl implements VRuntime {
         if (object == null) {
             throw new VException("newServer called with a null object");
         }
-        Invoker invoker = object instanceof Invoker ? (Invoker) object : new ReflectInvoker(object);
+        Invoker invoker;
+        if (object instanceof Invoker) {
+            invoker = (Invoker) object;
+        } else if (opts != null) {
+            invoker = new ReflectInvoker(object, opts.executor(), opts.methodExecutors());
+        } else {
+            invoker = new ReflectInvoker(object);
+        }
         return withNewServer(ctx, name, new DefaultDispatcher(invoker, authorizer), opts);
     }
     @Override
@@ -195,6 +208,61 @@ public class VRuntimeImpl implements VRuntime {
         }
     }
 
+    // Serves the objects returned by a dispatcher through ReflectInvokers that invoke their methods
+    // on the executors of the server options.  Objects that are Invokers are served as they are.
+    private static class ExecutorDispatcher implements Dispatcher {
+        private final Dispatcher dispatcher;
+        private final Executor executor;
+        private final Map<String, Executor> methodExecutors;
+        // The method executors that apply to each class of objects, i.e., the ones for the
+        // methods the class implements.
+        private final Map<Class<?>, Map<String, Executor>> classMethodExecutors =
+                new WeakHashMap<>();
+
+        ExecutorDispatcher(Dispatcher dispatcher, Executor executor,
+                           Map<String, Executor> methodExecutors) {
+            this.dispatcher = dispatcher;
+            this.executor = executor;
+            this.methodExecutors = methodExecutors;
+        }
+        @Override
+        public ServiceObjectWithAuthorizer lookup(String suffix) throws VException {
+            ServiceObjectWithAuthorizer result = dispatcher.lookup(suffix);
+            if (result == null) {
+                return null;
+            }
+            Object obj = result.getServiceObject();
+            if (obj == null || obj instanceof Invoker) {
+                return result;
+            }
+            return new ServiceObjectWithAuthorizer(
+                    new ReflectInvoker(obj, executor, getMethodExecutors(obj)),
+                    result.getAuthorizer());
+        }
+        private Map<String, Executor> getMethodExecutors(Object obj) throws VException {
+            if (methodExecutors.isEmpty()) {
+                return null;
+            }
+            synchronized (classMethodExecutors) {
+                Map<String, Executor> result = classMethodExecutors.get(obj.getClass());
+                if (result == null) {
+                    ReflectInvoker invoker = new ReflectInvoker(obj);
+                    result = new HashMap<>();
+                    for (Map.Entry<String, Executor> entry : methodExecutors.entrySet()) {
+                        try {
+                            invoker.getMetrics(entry.getKey());
+                            result.put(entry.getKey(), entry.getValue());
+                        } catch (VException e) {
+                            // Not a method of this class.
+                        }
+                    }
+                    classMethodExecutors.put(obj.getClass(), result);
+                }
+                return result;
+            }
+        }
+    }
+
     private static class ServerKey {
         @Override
         public int hashCode() {
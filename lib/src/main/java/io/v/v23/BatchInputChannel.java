@@ -0,0 +1,36 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.v23;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.List;
+
+import javax.annotation.CheckReturnValue;
+
+/**
+ * An {@link InputChannel} that can receive several items at once.
+ * <p>
+ * Receiving the items that are already available in a single call amortizes the per-item cost
+ * of {@link #recv} (for channels backed by the native runtime, a JNI call and a future per
+ * item) over the whole batch.  Use {@link InputChannels#recvBatch} to receive batches from any
+ * {@link InputChannel}.
+ */
+public interface BatchInputChannel<T> extends InputChannel<T> {
+    /**
+     * Returns a new {@link ListenableFuture} whose result are the next items in the channel:
+     * at least one and at most {@code max} items, in channel order.
+     * <p>
+     * The returned future completes as soon as at least one item is available, with all the items
+     * available at that point (up to {@code max}), so batching never delays an item.  The
+     * returned future fails in the same cases as the future returned by {@link #recv}; in
+     * particular, it fails with {@link io.v.v23.verror.EndOfFileException} only once all the
+     * items have been received.
+     *
+     * @param max maximum number of items to receive; must be positive
+     */
+    @CheckReturnValue
+    ListenableFuture<List<T>> recvBatch(int max);
+}
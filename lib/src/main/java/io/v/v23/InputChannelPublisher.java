@@ -0,0 +1,224 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.v23;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.v.v23.context.VContext;
+import io.v.v23.verror.EndOfFileException;
+
+/**
+ * A {@link Publisher} of the elements of an {@link InputChannel}; see
+ * {@link InputChannels#asPublisher}.
+ * <p>
+ * Elements are received in batches of at most {@code prefetch} elements, and no more than
+ * {@code prefetch} received elements are held waiting for demand: the channel isn't read from
+ * again until the subscriber has requested some of them.  All signals to the subscriber are
+ * serialized by a drain loop, which the threads completing the receives and the threads
+ * requesting elements take turns running.
+ */
+final class InputChannelPublisher<T> implements Publisher<T> {
+    private final VContext ctx;
+    private final InputChannel<T> channel;
+    private final int prefetch;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    InputChannelPublisher(VContext ctx, InputChannel<T> channel, int prefetch) {
+        this.ctx = ctx;
+        this.channel = channel;
+        this.prefetch = prefetch;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("Null subscriber");
+        }
+        if (!subscribed.compareAndSet(false, true)) {
+            // A channel can only be read once.
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {}
+                @Override
+                public void cancel() {}
+            });
+            subscriber.onError(new IllegalStateException(
+                    "An InputChannel publisher can only have one subscriber."));
+            return;
+        }
+        subscriber.onSubscribe(new ChannelSubscription(subscriber));
+    }
+
+    // The failure of a receive.
+    private static final class Failure {
+        private final Throwable error;
+
+        Failure(Throwable error) {
+            this.error = error;
+        }
+    }
+
+    private final class ChannelSubscription implements Subscription, FutureCallback<List<T>> {
+        private final Subscriber<? super T> subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        // The result of the receive in flight, set by the receive callback: a list of elements,
+        // or a Failure.
+        private final AtomicReference<Object> received = new AtomicReference<Object>();
+        private volatile Throwable invalidRequest;
+        private volatile ListenableFuture<List<T>> receiving;
+
+        // Only accessed from the drain loop.
+        private final ArrayDeque<T> buffer = new ArrayDeque<T>();
+        private boolean started;
+        private boolean inFlight;
+        private Throwable terminal;
+
+        ChannelSubscription(Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException(
+                        "Requested a non-positive number of elements: " + n);
+            } else {
+                long current;
+                long next;
+                do {
+                    current = requested.get();
+                    next = current + n;
+                    if (next < 0) {  // Overflow: unbounded demand.
+                        next = Long.MAX_VALUE;
+                    }
+                } while (!requested.compareAndSet(current, next));
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled.compareAndSet(false, true)) {
+                return;
+            }
+            ListenableFuture<List<T>> future = receiving;
+            if (future != null) {
+                future.cancel(false);
+            }
+            if (ctx != null && ctx.isCancelable()) {
+                ctx.cancel();
+            }
+        }
+
+        @Override
+        public void onSuccess(List<T> result) {
+            received.set(result);
+            drain();
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+            received.set(new Failure(t));
+            drain();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (cancelled.get()) {
+                    buffer.clear();
+                    return;
+                }
+                Object result = received.getAndSet(null);
+                if (result != null) {
+                    inFlight = false;
+                    receiving = null;
+                    if (result instanceof Failure) {
+                        terminal = ((Failure) result).error;
+                    } else {
+                        buffer.addAll((List<T>) result);
+                    }
+                }
+                if (invalidRequest != null) {
+                    terminate(invalidRequest);
+                    return;
+                }
+                long demand = requested.get();
+                if (demand > 0) {
+                    started = true;
+                }
+                long emitted = 0;
+                while (emitted != demand && !buffer.isEmpty()) {
+                    T item = buffer.poll();
+                    if (item == null) {
+                        terminate(new NullPointerException("Null element in InputChannel."));
+                        return;
+                    }
+                    subscriber.onNext(item);
+                    if (cancelled.get()) {
+                        buffer.clear();
+                        return;
+                    }
+                    ++emitted;
+                }
+                if (emitted != 0 && demand != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+                if (buffer.isEmpty() && terminal != null) {
+                    terminate(terminal);
+                    return;
+                }
+                if (started && !inFlight && terminal == null && buffer.size() < prefetch) {
+                    inFlight = true;
+                    ListenableFuture<List<T>> future =
+                            InputChannels.recvBatch(channel, prefetch - buffer.size());
+                    receiving = future;
+                    // If the future is already done, the callback only marks the loop as missed.
+                    Futures.addCallback(future, this);
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        // Sends the terminal signal: completion for the end of the channel, an error otherwise.
+        private void terminate(Throwable t) {
+            boolean first = cancelled.compareAndSet(false, true);
+            buffer.clear();
+            if (!first) {
+                return;
+            }
+            if (t instanceof EndOfFileException) {
+                subscriber.onComplete();
+                return;
+            }
+            if (t instanceof IllegalArgumentException || t instanceof NullPointerException) {
+                // The subscriber or the channel misbehaved: stop reading from the channel.
+                if (ctx != null && ctx.isCancelable()) {
+                    ctx.cancel();
+                }
+            }
+            subscriber.onError(t);
+        }
+    }
+}
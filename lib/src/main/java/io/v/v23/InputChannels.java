@@ -4,21 +4,28 @@
 
 package io.v.v23;
 
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
 import com.google.common.collect.AbstractIterator;
-import com.google.common.util.concurrent.AsyncFunction;
-import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
 
+import org.reactivestreams.Publisher;
+
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 
 import javax.annotation.CheckReturnValue;
+import javax.annotation.Nullable;
 
 import io.v.v23.context.VContext;
 import io.v.v23.verror.EndOfFileException;
@@ -30,6 +37,9 @@ import static io.v.v23.VFutures.sync;
  * Contains static utility methods that operate on or return objects of type {@link InputChannel}.
  */
 public class InputChannels {
+    // Maximum number of items received at once by the methods that consume whole channels.
+    private static final int BATCH_SIZE = 64;
+
     /**
      * Function used for transforming an input value into an output value.
      */
@@ -53,6 +63,30 @@ public class InputChannels {
         return new TransformedChannel<>(ctx, fromChannel, function);
     }
 
+    /**
+     * Returns a new {@link ListenableFuture} whose result are the next items in the provided
+     * {@link InputChannel}: at least one and at most {@code max} items.
+     * <p>
+     * If the channel is a {@link BatchInputChannel}, this is the same as
+     * {@link BatchInputChannel#recvBatch}; otherwise, a single item is received with
+     * {@link InputChannel#recv}.
+     *
+     * @param max maximum number of items to receive; must be positive
+     */
+    @CheckReturnValue
+    public static <T> ListenableFuture<List<T>> recvBatch(InputChannel<T> channel, int max) {
+        Preconditions.checkArgument(max > 0, "max must be positive: %s", max);
+        if (channel instanceof BatchInputChannel) {
+            return ((BatchInputChannel<T>) channel).recvBatch(max);
+        }
+        return Futures.transform(channel.recv(), new Function<T, List<T>>() {
+            @Override
+            public List<T> apply(T item) {
+                return Collections.singletonList(item);
+            }
+        });
+    }
+
     /**
      * Returns a new {@link ListenableFuture} whose result is the list of all elements received
      * from the provided {@link InputChannel}.
@@ -74,32 +108,18 @@ public class InputChannels {
     @CheckReturnValue
     public static <T> ListenableFuture<List<T>> asList(final InputChannel<T> channel,
                                                        Executor executor) {
-        final SettableFuture<List<T>> future = SettableFuture.create();
-        Futures.addCallback(channel.recv(), newCallbackForList(
-                channel, new ArrayList<T>(), future, executor), executor);
-        return future;
-    }
-
-    private static <T> FutureCallback<T> newCallbackForList(
-            final InputChannel<T> channel, final List<T> list,
-            final SettableFuture<List<T>> future,
-            final Executor executor) {
-        return new FutureCallback<T>() {
+        final List<T> list = new ArrayList<T>();
+        return new ChannelDrain<T, List<T>>(channel, executor) {
             @Override
-            public void onSuccess(T result) {
-                list.add(result);
-                Futures.addCallback(channel.recv(),
-                        newCallbackForList(channel, list, future, executor), executor);
+            ListenableFuture<?> onNext(T item) {
+                list.add(item);
+                return null;
             }
             @Override
-            public void onFailure(Throwable t) {
-                if (t instanceof EndOfFileException) {
-                    future.set(list);
-                } else {
-                    future.setException(t);
-                }
+            List<T> onEnd() {
+                return list;
             }
-        };
+        }.start();
     }
 
     /**
@@ -123,41 +143,77 @@ public class InputChannels {
     @CheckReturnValue
     public static <T> ListenableFuture<Void> asDone(final InputChannel<T> channel,
                                                     Executor executor) {
-        final SettableFuture<Void> future = SettableFuture.create();
-        Futures.addCallback(channel.recv(),
-                newCallbackForDone(channel, future, executor), executor);
-        return future;
-    }
-
-    private static <T> FutureCallback<T> newCallbackForDone(final InputChannel<T> channel,
-                                                            final SettableFuture<Void> future,
-                                                            final Executor executor) {
-        return new FutureCallback<T>() {
+        return new ChannelDrain<T, Void>(channel, executor) {
             @Override
-            public void onSuccess(T result) {
-                Futures.addCallback(channel.recv(),
-                        newCallbackForDone(channel, future, executor), executor);
+            ListenableFuture<?> onNext(T item) {
+                return null;
             }
             @Override
-            public void onFailure(Throwable t) {
-                if (t instanceof EndOfFileException) {
-                    future.set(null);
-                } else {
-                    future.setException(t);
-                }
+            Void onEnd() {
+                return null;
             }
-        };
+        }.start();
     }
 
     /**
-     * Returns a {@link VIterable} over all the elements in {@code channel}, blocking in every
-     * iteration.
+     * Returns a {@link VIterable} over all the elements in {@code channel}, blocking whenever
+     * no received elements are left.  Elements are received in batches (see {@link #recvBatch}).
      * <p>
      * The returned iterator will terminate gracefully iff {@code channel}'s
      * {@link InputChannel#recv} call fails with a {@link io.v.v23.verror.EndOfFileException}.
      */
     public static <T> VIterable<T> asIterable(InputChannel<? extends T> channel) {
-        return new ChannelIterable<>(channel);
+        return new ChannelIterable<>(channel, 0);
+    }
+
+    /**
+     * Returns a {@link VIterable} over all the elements in {@code channel} that reads ahead of
+     * the iterator: while the iterator consumes received elements, the next batch of elements
+     * is already being received, so that a consumer that does work per element doesn't wait for
+     * the channel as often.
+     * <p>
+     * At most {@code prefetch} received elements are held by the iterator at any time, and at
+     * most one receive is outstanding, so elements are still received in order.  A failure of
+     * the channel is reported only once all the elements received before it have been
+     * consumed.  As with {@link #asIterable(InputChannel)}, the returned iterator will terminate
+     * gracefully iff {@code channel}'s {@link InputChannel#recv} call fails with a
+     * {@link io.v.v23.verror.EndOfFileException}.
+     *
+     * @param channel  the channel to read from
+     * @param prefetch maximum number of received elements held ahead of the iterator; must be
+     *                 positive
+     */
+    public static <T> VIterable<T> asIterable(InputChannel<? extends T> channel, int prefetch) {
+        Preconditions.checkArgument(prefetch > 0, "prefetch must be positive: %s", prefetch);
+        return new ChannelIterable<>(channel, prefetch);
+    }
+
+    /**
+     * Returns a Reactive Streams {@link Publisher} of the elements in {@code channel}.
+     * <p>
+     * The publisher honors the demand of its subscriber: at most {@code prefetch} elements are
+     * received from the channel ahead of the subscriber's requests, so a fast channel can't
+     * overwhelm a slow subscriber.  The channel completes the subscriber when it reaches its end
+     * (i.e., {@link InputChannel#recv} fails with an {@link EndOfFileException}) and signals any
+     * other failure as an error.
+     * <p>
+     * Since a channel can only be read once, the publisher accepts a single subscriber; any
+     * further subscribers are immediately signaled an {@link IllegalStateException}.
+     * <p>
+     * The subscriber is signaled on the threads that complete the channel's futures, or that
+     * request elements.
+     *
+     * @param ctx      the context used for creating the channel, which is canceled when the
+     *                 subscriber cancels its subscription; may be {@code null}, in which case
+     *                 cancelling the subscription stops reading from the channel but doesn't
+     *                 cancel it
+     * @param channel  the channel to read from
+     * @param prefetch maximum number of elements received ahead of demand; must be positive
+     */
+    public static <T> Publisher<T> asPublisher(
+            @Nullable VContext ctx, InputChannel<T> channel, int prefetch) {
+        Preconditions.checkArgument(prefetch > 0, "prefetch must be positive: %s", prefetch);
+        return new InputChannelPublisher<>(ctx, channel, prefetch);
     }
 
     /**
@@ -188,47 +244,154 @@ public class InputChannels {
     @CheckReturnValue
     public static <T> ListenableFuture<Void> withCallback(
             InputChannel<T> channel,
-            InputChannelCallback<? super T> callback,
+            final InputChannelCallback<? super T> callback,
             Executor executor) {
-        final SettableFuture<Void> future = SettableFuture.create();
-        Futures.addCallback(channel.recv(),
-                newCallbackForCallback(channel, future, callback, executor), executor);
-        return future;
+        return new ChannelDrain<T, Void>(channel, executor) {
+            @Override
+            ListenableFuture<?> onNext(T item) {
+                return callback.onNext(item);
+            }
+            @Override
+            Void onEnd() {
+                return null;
+            }
+        }.start();
     }
 
-    private static <T> FutureCallback<T> newCallbackForCallback(
-            final InputChannel<T> channel, final SettableFuture<Void> future,
-            final InputChannelCallback<? super T> callback, final Executor executor) {
-        return new FutureCallback<T>() {
+    /**
+     * Returns an {@link InputChannel} with the elements of {@code fromChannel} that satisfy the
+     * provided {@code predicate}.
+     * <p>
+     * Like the channels returned by {@link #transform}, the returned channel filters whole
+     * batches of elements at once when read with {@link #recvBatch}.
+     */
+    public static <T> InputChannel<T> filter(
+            VContext ctx, InputChannel<T> fromChannel, final Predicate<? super T> predicate) {
+        return new TransformedChannel<>(ctx, fromChannel, new TransformFunction<T, T>() {
             @Override
-            public void onSuccess(T result) {
-                ListenableFuture<Void> done = callback.onNext(result);
-                if (done == null) {
-                    done = Futures.immediateFuture(null);
-                }
-                Futures.addCallback(Futures.transform(done, new AsyncFunction<Void, T>() {
-                            @Override
-                            public ListenableFuture<T> apply(Void input) throws Exception {
-                                return channel.recv();
-                            }
-                        }),
-                        newCallbackForCallback(channel, future, callback, executor), executor);
+            public T apply(T from) {
+                return predicate.apply(from) ? from : null;
             }
-            @Override
-            public void onFailure(Throwable t) {
-                if (t instanceof EndOfFileException) {
-                    future.set(null);
+        });
+    }
+
+    /**
+     * Returns an {@link InputChannel} with the first {@code limit} elements of
+     * {@code fromChannel}.  Once {@code limit} elements have been received, the returned channel
+     * reports the end of input, without reading further from {@code fromChannel}.
+     * <p>
+     * The returned channel adds no futures to {@link InputChannel#recv}, and a single future per
+     * batch to {@link #recvBatch}.
+     */
+    public static <T> InputChannel<T> limit(
+            VContext ctx, InputChannel<T> fromChannel, long limit) {
+        Preconditions.checkArgument(limit >= 0, "limit must not be negative: %s", limit);
+        return new LimitedChannel<>(ctx, fromChannel, limit);
+    }
+
+    /**
+     * Reads a channel to its end in a loop, rather than by chaining a callback per element.
+     * <p>
+     * The drain is the single listener of all the futures it waits for: the batches received
+     * from the channel and the futures returned by {@link #onNext}.  It processes every
+     * future that is already done in the same loop iteration, so channels and callbacks
+     * completing synchronously don't grow the stack.
+     */
+    private abstract static class ChannelDrain<T, R> implements Runnable {
+        private final InputChannel<T> channel;
+        private final Executor executor;
+        private final SettableFuture<R> future = SettableFuture.create();
+        // The future the drain is waiting for, and whether it is a batch of elements (rather
+        // than a future returned by onNext).
+        private ListenableFuture<?> pending;
+        private boolean pendingIsBatch;
+        private List<T> batch = Collections.emptyList();
+        private int index;
+
+        ChannelDrain(InputChannel<T> channel, Executor executor) {
+            this.channel = channel;
+            this.executor = executor;
+        }
+
+        /**
+         * Handles an element, returning {@code null} or a future that must complete before the
+         * next element is handled.
+         */
+        abstract ListenableFuture<?> onNext(T item);
+
+        /**
+         * Returns the result of the drain, once the end of the channel has been reached.
+         */
+        abstract R onEnd();
+
+        ListenableFuture<R> start() {
+            await(recvBatch(channel, BATCH_SIZE), true);
+            return future;
+        }
+
+        private void await(ListenableFuture<?> next, boolean isBatch) {
+            pending = next;
+            pendingIsBatch = isBatch;
+            next.addListener(this, executor);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void run() {
+            ListenableFuture<?> done = pending;
+            boolean isBatch = pendingIsBatch;
+            pending = null;
+            while (true) {
+                Object result;
+                try {
+                    result = Uninterruptibles.getUninterruptibly(done);
+                } catch (ExecutionException e) {
+                    finish(e.getCause());
+                    return;
+                } catch (RuntimeException e) {  // CancellationException
+                    finish(e);
+                    return;
+                }
+                if (isBatch) {
+                    batch = (List<T>) result;
+                    index = 0;
+                }
+                ListenableFuture<?> next = null;
+                try {
+                    while (next == null && index < batch.size()) {
+                        next = onNext(batch.get(index++));
+                    }
+                } catch (RuntimeException e) {
+                    finish(e);
+                    return;
+                }
+                isBatch = next == null;
+                if (isBatch) {
+                    next = recvBatch(channel, BATCH_SIZE);
+                }
+                if (!next.isDone()) {
+                    await(next, isBatch);
                     return;
                 }
+                done = next;
+            }
+        }
+
+        private void finish(Throwable t) {
+            if (t instanceof EndOfFileException) {
+                future.set(onEnd());
+            } else {
                 future.setException(t);
             }
-        };
+        }
     }
 
-    private static class TransformedChannel<F, T> implements InputChannel<T> {
+    private static class TransformedChannel<F, T> implements BatchInputChannel<T> {
         private final VContext ctx;
         private final InputChannel<F> fromChannel;
         private final TransformFunction<? super F, ? extends T> function;
+        // The error of a batch whose first outputs were returned; thrown by the next receive.
+        private Exception error;
 
         private TransformedChannel(VContext ctx,
                                    InputChannel<F> fromChannel,
@@ -239,37 +402,221 @@ public class InputChannels {
         }
         @Override
         public ListenableFuture<T> recv() {
-            return VFutures.withUserLandChecks(ctx,
-                    Futures.transform(fromChannel.recv(), new AsyncFunction<F, T>() {
+            Exception e = takeError();
+            if (e != null) {
+                return Futures.immediateFailedFuture(e);
+            }
+            return VFutures.withUserLandChecks(ctx, new SkippingReceive<F, T>() {
+                @Override
+                ListenableFuture<F> next() {
+                    return fromChannel.recv();
+                }
                 @Override
-                public ListenableFuture<T> apply(F input) throws Exception {
-                    T output = function.apply(input);
-                    if (output == null) {
-                        return recv();
+                T apply(F input) throws VException {
+                    return function.apply(input);
+                }
+            }.start());
+        }
+        @Override
+        public ListenableFuture<List<T>> recvBatch(final int max) {
+            Exception e = takeError();
+            if (e != null) {
+                return Futures.immediateFailedFuture(e);
+            }
+            return VFutures.withUserLandChecks(ctx, new SkippingReceive<List<F>, List<T>>() {
+                @Override
+                ListenableFuture<List<F>> next() {
+                    return InputChannels.recvBatch(fromChannel, max);
+                }
+                @Override
+                List<T> apply(List<F> input) throws VException {
+                    List<T> outputs = new ArrayList<>(input.size());
+                    for (F item : input) {
+                        T output;
+                        try {
+                            output = function.apply(item);
+                        } catch (VException | RuntimeException e) {
+                            if (outputs.isEmpty()) {
+                                throw e;
+                            }
+                            // The inputs before the failed one were consumed upstream: return
+                            // their outputs, and the error on the next receive.
+                            setError(e);
+                            return outputs;
+                        }
+                        if (output != null) {
+                            outputs.add(output);
+                        }
                     }
-                    return Futures.immediateFuture(output);
+                    return outputs.isEmpty() ? null : outputs;
                 }
-            }));
+            }.start());
+        }
+        private synchronized Exception takeError() {
+            Exception e = error;
+            error = null;
+            return e;
+        }
+        private synchronized void setError(Exception e) {
+            error = e;
+        }
+    }
+
+    /**
+     * Receives inputs until one of them maps to a non-{@code null} output.  Inputs that are
+     * already available are skipped in a loop rather than by chaining futures, so that a long run
+     * of skipped inputs uses neither stack nor a future per input.
+     */
+    private abstract static class SkippingReceive<I, O> implements Runnable {
+        private final SettableFuture<O> future = SettableFuture.create();
+        private volatile ListenableFuture<I> pending;
+
+        /**
+         * Starts receiving the next input.
+         */
+        abstract ListenableFuture<I> next();
+
+        /**
+         * Returns the output for the given input, or {@code null} if the input should be skipped.
+         */
+        abstract O apply(I input) throws VException;
+
+        ListenableFuture<O> start() {
+            pending = next();
+            // Like Futures.transform, propagate the cancellation of the output to the input.
+            future.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    if (future.isCancelled()) {
+                        pending.cancel(false);
+                    }
+                }
+            }, MoreExecutors.directExecutor());
+            pending.addListener(this, MoreExecutors.directExecutor());
+            return future;
+        }
+
+        @Override
+        public void run() {
+            ListenableFuture<I> done = pending;
+            while (true) {
+                if (done.isCancelled()) {
+                    future.cancel(false);
+                    return;
+                }
+                try {
+                    O output = apply(Uninterruptibles.getUninterruptibly(done));
+                    if (output != null) {
+                        future.set(output);
+                        return;
+                    }
+                } catch (ExecutionException e) {
+                    future.setException(e.getCause());
+                    return;
+                } catch (VException | RuntimeException e) {
+                    future.setException(e);
+                    return;
+                }
+                if (future.isCancelled()) {
+                    return;
+                }
+                done = next();
+                pending = done;
+                if (future.isCancelled()) {
+                    // The cancellation may have missed the new input.
+                    done.cancel(false);
+                    return;
+                }
+                if (!done.isDone()) {
+                    done.addListener(this, MoreExecutors.directExecutor());
+                    return;
+                }
+            }
+        }
+    }
+
+    private static class LimitedChannel<T> implements BatchInputChannel<T> {
+        private final VContext ctx;
+        private final InputChannel<T> fromChannel;
+        private long remaining;
+
+        private LimitedChannel(VContext ctx, InputChannel<T> fromChannel, long limit) {
+            this.ctx = ctx;
+            this.fromChannel = fromChannel;
+            this.remaining = limit;
+        }
+        @Override
+        public ListenableFuture<T> recv() {
+            synchronized (this) {
+                if (remaining == 0) {
+                    return Futures.immediateFailedFuture(new EndOfFileException(ctx));
+                }
+                --remaining;
+            }
+            return fromChannel.recv();
+        }
+        @Override
+        public ListenableFuture<List<T>> recvBatch(int max) {
+            final int reserved;
+            synchronized (this) {
+                if (remaining == 0) {
+                    return Futures.immediateFailedFuture(new EndOfFileException(ctx));
+                }
+                reserved = (int) Math.min(max, remaining);
+                remaining -= reserved;
+            }
+            return Futures.transform(InputChannels.recvBatch(fromChannel, reserved),
+                    new Function<List<T>, List<T>>() {
+                        @Override
+                        public List<T> apply(List<T> batch) {
+                            // Give back the elements that were reserved but not received.
+                            synchronized (LimitedChannel.this) {
+                                remaining += reserved - batch.size();
+                            }
+                            return batch;
+                        }
+                    });
         }
     }
 
     private static class ChannelIterable<T> implements VIterable<T> {
-        private final InputChannel<? extends T> fromChannel;
+        private final InputChannel<T> fromChannel;
+        // Maximum number of received elements held by the iterator, or 0 for no read-ahead.
+        private final int prefetch;
         private boolean isCreated;
         private volatile VException error;
 
-        private ChannelIterable(InputChannel<? extends T> fromChannel) {
-            this.fromChannel = fromChannel;
+        @SuppressWarnings("unchecked")
+        private ChannelIterable(InputChannel<? extends T> fromChannel, int prefetch) {
+            // The channel is only read from, so it can be safely viewed as a channel of T.
+            this.fromChannel = (InputChannel<T>) fromChannel;
+            this.prefetch = prefetch;
         }
 
         public synchronized Iterator<T> iterator() {
             Preconditions.checkState(!isCreated, "Can only create one iterator.");
             isCreated = true;
             return new AbstractIterator<T>() {
+                private final ArrayDeque<T> received = new ArrayDeque<>();
+                // The receive started ahead of the iterator, if any.
+                private ListenableFuture<List<T>> readAhead;
+
                 protected T computeNext() {
                     try {
-                        T result = sync(fromChannel.recv());
-                        return result;
+                        if (received.isEmpty()) {
+                            ListenableFuture<List<T>> batch = readAhead != null
+                                    ? readAhead
+                                    : recvBatch(fromChannel, prefetch > 0 ? prefetch : BATCH_SIZE);
+                            readAhead = null;
+                            received.addAll(sync(batch));
+                        }
+                        T item = received.poll();
+                        // Start receiving the next batch once half of the received elements
+                        // have been consumed.
+                        if (prefetch > 0 && readAhead == null && received.size() <= prefetch / 2) {
+                            readAhead = recvBatch(fromChannel, prefetch - received.size());
+                        }
+                        return item;
                     } catch (EndOfFileException e) {
                         return endOfData();
                     } catch (VException e) {
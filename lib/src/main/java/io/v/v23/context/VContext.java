@@ -13,6 +13,8 @@ import io.v.v23.verror.VException;
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * The mechanism for carrying deadlines, cancellation, as well as other arbitrary values.
  * <p>
@@ -104,15 +106,36 @@ public class VContext {
      */
     public static VContext create() {
         try {
-            return nativeCreate();
+            VContext ctx = nativeCreate();
+            ctx.hasJavaValues = true;
+            return ctx;
         } catch (VException e) {
             throw new RuntimeException("Couldn't create new context", e);
         }
     }
 
+    // Maximum number of values cached by a natively created context.
+    private static final int MAX_CACHED_VALUES = 16;
+
     private long nativeRef;
     private long nativeCancelRef;  // may be 0
 
+    // Contexts derived by the methods of this class keep the context they were derived from and
+    // the value they add (if any), so that values are looked up without native calls.  For
+    // contexts created natively, hasJavaValues is false and the values looked up natively are
+    // cached in nativeValues, as the values of a context never change.
+    private VContext parent;
+    private boolean hasJavaValues;
+    private ValueEntry ownValue;
+    // True for contexts derived by withValue, which are canceled together with their parent.
+    private boolean sharesCancel;
+    private volatile ValueEntry nativeValues;
+
+    // Set once this context is known to be canceled: by cancel(), and by the native notification
+    // of the cancellation once isCanceled() or onDone() has been called.
+    private final AtomicBoolean canceled = new AtomicBoolean();
+    private volatile boolean watchingDone;
+
     private native void nativeCancel(long nativeCancelRef);
     private native boolean nativeIsCanceled(long nativeRef);
     private native DateTime nativeDeadline(long nativeRef) throws VException;
@@ -142,9 +165,51 @@ public class VContext {
      * <p>
      * It is illegal to invoke this method on a context that isn't
      * {@link #isCancelable() cancelable}.
+     * <p>
+     * For a cancelable context, the cancellation state is cached: after the first call, this
+     * method doesn't call into the native runtime.  A cancellation by {@link #cancel} is visible
+     * as soon as that method returns; other cancellations (e.g., an expired deadline) are visible
+     * once the runtime has delivered the notification of the context being {@link #onDone done}.
+     * For any other context, e.g., a context created by the native runtime, the state is looked
+     * up natively on every call, unless a cancelable ancestor is known to be canceled.
      */
     public boolean isCanceled() {
-        return nativeIsCanceled(nativeRef);
+        VContext ctx = cancelOwner();
+        for (VContext ancestor = ctx; ancestor != null; ancestor = ancestor.parent) {
+            if (ancestor.canceled.get()) {
+                return true;
+            }
+        }
+        if (!ctx.watchingDone) {
+            if (!ctx.isCancelable()) {
+                return nativeIsCanceled(ctx.nativeRef);
+            }
+            ctx.watchDone();
+        }
+        return ctx.canceled.get();
+    }
+
+    // Starts watching for the cancellation of this context, so that isCanceled() is answered
+    // without native calls from now on.
+    private synchronized void watchDone() {
+        if (watchingDone) {
+            return;
+        }
+        nativeOnDone(nativeRef, new DoneCallback(canceled));
+        if (nativeIsCanceled(nativeRef)) {
+            canceled.set(true);
+        }
+        watchingDone = true;
+    }
+
+    // Returns the context that owns the cancelation of this context, i.e., the closest ancestor
+    // not derived by withValue.
+    private VContext cancelOwner() {
+        VContext ctx = this;
+        while (ctx.sharesCancel) {
+            ctx = ctx.parent;
+        }
+        return ctx;
     }
 
     /**
@@ -156,6 +221,7 @@ public class VContext {
     public void cancel() {
         Preconditions.checkState(isCancelable(), "Context isn't cancelable.");
         nativeCancel(nativeCancelRef);
+        cancelOwner().canceled.set(true);
     }
 
     /**
@@ -168,7 +234,7 @@ public class VContext {
      * specified in this context (see {@link io.v.v23.V#withExecutor}).
      */
     public ListenableFuture<DoneReason> onDone() {
-        ListenableFutureCallback<DoneReason> callback = new ListenableFutureCallback<>();
+        ListenableFutureCallback<DoneReason> callback = new DoneCallback(cancelOwner().canceled);
         nativeOnDone(nativeRef, callback);
         return callback.getFutureOnExecutor(this);
     }
@@ -193,11 +259,39 @@ public class VContext {
      * @return     value associated with the key.
      */
     public Object value(Object key) {
+        Class<?> keyClass = key == null ? null : key.getClass();
+        int keyHash = key == null ? 0 : key.hashCode();
+        VContext ctx = this;
+        while (ctx.hasJavaValues) {
+            if (ctx.ownValue != null && ctx.ownValue.matches(keyClass, keyHash)) {
+                return ctx.ownValue.value;
+            }
+            if (ctx.parent == null) {
+                return null;
+            }
+            ctx = ctx.parent;
+        }
+        return ctx.cachedNativeValue(key, keyClass, keyHash);
+    }
+
+    private Object cachedNativeValue(Object key, Class<?> keyClass, int keyHash) {
+        ValueEntry cached = nativeValues;
+        for (ValueEntry entry = cached; entry != null; entry = entry.next) {
+            if (entry.matches(keyClass, keyHash)) {
+                return entry.value;
+            }
+        }
+        Object value;
         try {
-            return nativeValue(nativeRef, keySignature(key));
+            value = nativeValue(nativeRef, keySignature(key));
         } catch (VException e) {
             throw new RuntimeException("Couldn't get value: ", e);
         }
+        if (cached == null || cached.size < MAX_CACHED_VALUES) {
+            // Racing lookups may drop each other's entries, which only costs another lookup.
+            nativeValues = new ValueEntry(keyClass, keyHash, value, cached);
+        }
+        return value;
     }
 
     /**
@@ -209,7 +303,7 @@ public class VContext {
      */
     public VContext withCancel() {
         try {
-            return nativeWithCancel(nativeRef);
+            return derive(nativeWithCancel(nativeRef), null, false);
         } catch (VException e) {
             throw new RuntimeException("Couldn't create cancelable context", e);
         }
@@ -229,7 +323,7 @@ public class VContext {
      */
     public VContext withDeadline(DateTime deadline) {
         try {
-            return nativeWithDeadline(nativeRef, deadline);
+            return derive(nativeWithDeadline(nativeRef, deadline), null, false);
         } catch (VException e) {
             throw new RuntimeException("Couldn't create context with deadline", e);
         }
@@ -249,7 +343,7 @@ public class VContext {
      */
     public VContext withTimeout(Duration timeout) {
         try {
-            return nativeWithTimeout(nativeRef, timeout);
+            return derive(nativeWithTimeout(nativeRef, timeout), null, false);
         } catch (VException e) {
             throw new RuntimeException("Couldn't create context with timeout", e);
         }
@@ -278,12 +372,25 @@ public class VContext {
      */
     public VContext withValue(Object key, Object value) {
         try {
-            return nativeWithValue(nativeRef, nativeCancelRef, keySignature(key), value);
+            VContext child = nativeWithValue(nativeRef, nativeCancelRef, keySignature(key), value);
+            return derive(child, new ValueEntry(
+                    key == null ? null : key.getClass(), key == null ? 0 : key.hashCode(),
+                    value, null), true);
         } catch (VException e) {
             throw new RuntimeException("Couldn't create context with data:", e);
         }
     }
 
+    private VContext derive(VContext child, ValueEntry value, boolean sharesCancel) {
+        if (child != this) {
+            child.parent = this;
+            child.hasJavaValues = true;
+            child.ownValue = value;
+            child.sharesCancel = sharesCancel;
+        }
+        return child;
+    }
+
     private static String keySignature(Object key) {
         if (key == null) {
             return "";
@@ -303,4 +410,41 @@ public class VContext {
     protected void finalize() {
         nativeFinalize(nativeRef, nativeCancelRef);
     }
+
+    // A value attached to a context, with its key's (getClass(), hashCode()) pair.
+    private static final class ValueEntry {
+        private final Class<?> keyClass;
+        private final int keyHash;
+        private final Object value;
+        private final ValueEntry next;
+        private final int size;
+
+        ValueEntry(Class<?> keyClass, int keyHash, Object value, ValueEntry next) {
+            this.keyClass = keyClass;
+            this.keyHash = keyHash;
+            this.value = value;
+            this.next = next;
+            this.size = next == null ? 1 : next.size + 1;
+        }
+
+        boolean matches(Class<?> keyClass, int keyHash) {
+            return this.keyClass == keyClass && this.keyHash == keyHash;
+        }
+    }
+
+    // Marks a context as canceled when it is done.  It only references the context's flag, so
+    // that a pending notification doesn't keep the context from being finalized.
+    private static final class DoneCallback extends ListenableFutureCallback<DoneReason> {
+        private final AtomicBoolean canceled;
+
+        DoneCallback(AtomicBoolean canceled) {
+            this.canceled = canceled;
+        }
+
+        @Override
+        public void onSuccess(DoneReason result) {
+            canceled.set(true);
+            super.onSuccess(result);
+        }
+    }
 }
@@ -6,6 +6,11 @@ package io.v.v23.options;
 
 import org.joda.time.Duration;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
 import javax.annotation.Nullable;
 
 import io.v.v23.OptionDefs;
@@ -50,6 +55,8 @@ public final class RpcServerOptions {
     // https://github.com/vanadium/go.ref/blob/60698e6/runtime/internal/rpc/server.go#L97
     private boolean isLeaf = true;
     private Duration channelTimeout;
+    private Executor executor;
+    private final Map<String, Executor> methodExecutors = new HashMap<>();
 
     public RpcServerOptions servesMountTable(final boolean servesMountTable) {
         this.servesMountTable = servesMountTable;
@@ -71,6 +78,30 @@ public final class RpcServerOptions {
         return this;
     }
 
+    /**
+     * Sets the executor on which the methods of the served object are invoked, in place of the
+     * executor of the server context.  Only applies to objects served through a
+     * {@link io.v.v23.rpc.ReflectInvoker}, i.e., the served object or the objects returned by the
+     * served dispatcher, unless they are {@link io.v.v23.rpc.Invoker}s themselves; see
+     * {@link io.v.v23.rpc.Bulkheads}.
+     */
+    public RpcServerOptions executor(final Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Sets the executor on which the given method of the served object is invoked, overriding
+     * {@link #executor(Executor)} for that method.  Only applies to objects served through a
+     * {@link io.v.v23.rpc.ReflectInvoker}, like {@link #executor(Executor)}.  A served object
+     * must implement the method; the objects returned by a served dispatcher may not, in which
+     * case the executor doesn't apply to them.
+     */
+    public RpcServerOptions methodExecutor(final String method, final Executor executor) {
+        this.methodExecutors.put(method, executor);
+        return this;
+    }
+
     public boolean servesMountTable() {
         return this.servesMountTable;
     }
@@ -86,4 +117,12 @@ public final class RpcServerOptions {
     public Duration channelTimeout() {
         return this.channelTimeout;
     }
+
+    public Executor executor() {
+        return this.executor;
+    }
+
+    public Map<String, Executor> methodExecutors() {
+        return Collections.unmodifiableMap(this.methodExecutors);
+    }
 }
@@ -0,0 +1,180 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.v23.rpc;
+
+import io.v.v23.verror.VException;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factory methods for bulkheads: bounded executors that isolate the calls to a service, or to
+ * a single method of a service, from the calls to the rest of the server.
+ * <p>
+ * By default, a {@link ReflectInvoker} runs all methods on the executor of the server context
+ * (see {@link io.v.v23.V#getExecutor V.getExecutor}), so a single slow method can occupy all of
+ * its threads.  Bulkheads are assigned to a service or to individual methods with
+ * {@link io.v.v23.options.RpcServerOptions#executor RpcServerOptions.executor} and
+ * {@link io.v.v23.options.RpcServerOptions#methodExecutor RpcServerOptions.methodExecutor}:
+ * <p><blockquote><pre>
+ * RpcServerOptions opts = new RpcServerOptions()
+ *         .executor(Bulkheads.newFixedBulkhead("fortune", 4, 64))
+ *         .methodExecutor("slowGet", Bulkheads.newThreadPerCallBulkhead("fortune-slowGet", 32));
+ * ctx = V.withNewServer(ctx, "fortune", new FortuneServerImpl(), null, opts);
+ * </pre></blockquote><p>
+ * A bulkhead that is full rejects new calls immediately, rather than queueing them
+ * indefinitely: the calls fail with a {@link VException} with the {@link #ERR_FULL} identifier,
+ * whose {@link VException.ActionCode#RETRY_BACKOFF RETRY_BACKOFF} action tells the clients to
+ * retry later.  A call occupies its place in the bulkhead until the server method returns, and
+ * frees it before the client gets the reply, so that a client making calls one after the other
+ * never finds the bulkhead full.
+ * <p>
+ * The threads of a bulkhead are daemon threads and are never shut down by the server: the
+ * caller owns the returned executors and should shut them down once the server is stopped.
+ */
+public final class Bulkheads {
+    /**
+     * The identifier of the error returned for the calls rejected by a full bulkhead.
+     */
+    public static final VException.IDAction ERR_FULL = VException.register(
+            "v.io/v23/rpc.BulkheadFull",
+            VException.ActionCode.RETRY_BACKOFF,
+            "{1:}{2:} Too many concurrent calls to method {3}, try again later{:_}");
+
+    /**
+     * Returns a new bulkhead that runs calls on at most {@code numThreads} threads, and holds at
+     * most {@code maxQueued} calls waiting for a thread.  Calls submitted while all threads are
+     * busy and the queue is full are rejected.
+     *
+     * @param  name       name of the bulkhead, used to name its threads
+     * @param  numThreads maximum number of calls that run concurrently
+     * @param  maxQueued  maximum number of calls waiting to run, or {@code 0} to reject calls
+     *                    as soon as all threads are busy
+     * @return            a new bulkhead
+     */
+    public static ExecutorService newFixedBulkhead(String name, int numThreads, int maxQueued) {
+        if (numThreads <= 0) {
+            throw new IllegalArgumentException("numThreads must be positive: " + numThreads);
+        }
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("maxQueued must not be negative: " + maxQueued);
+        }
+        Bulkhead executor = new Bulkhead(name, numThreads, numThreads,
+                new LinkedBlockingQueue<Runnable>(), numThreads + maxQueued);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Returns a new bulkhead that runs every call on its own thread, for methods that block for
+     * long periods of time.  Idle threads are reused for subsequent calls and exit after a
+     * minute of inactivity.  Calls submitted while {@code maxConcurrent} calls are already
+     * running are rejected.
+     *
+     * @param  name          name of the bulkhead, used to name its threads
+     * @param  maxConcurrent maximum number of calls that run concurrently
+     * @return               a new bulkhead
+     */
+    public static ExecutorService newThreadPerCallBulkhead(String name, int maxConcurrent) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException(
+                    "maxConcurrent must be positive: " + maxConcurrent);
+        }
+        return new Bulkhead(name, 0, Integer.MAX_VALUE, new SynchronousQueue<Runnable>(),
+                maxConcurrent);
+    }
+
+    /**
+     * A thread pool that admits a bounded number of tasks, running or waiting for a thread.
+     * <p>
+     * Admission is counted with a semaphore, not by the pool itself: a pool thread stays busy for
+     * a moment after its task is done, so a pool that rejected tasks whenever all of its threads
+     * were busy would also reject tasks submitted right after others have completed.  The pool
+     * itself is unbounded.
+     * <p>
+     * {@link #execute execute} admits a task and frees its place once the task has run.
+     * {@link ReflectInvoker} instead admits each call with {@link #tryAdmit} and frees its place
+     * with {@link #release} before setting the reply of the call.
+     */
+    static final class Bulkhead extends ThreadPoolExecutor {
+        private final Semaphore permits;
+
+        Bulkhead(String name, int corePoolSize, int maximumPoolSize,
+                 BlockingQueue<Runnable> queue, int maxAdmitted) {
+            super(corePoolSize, maximumPoolSize, 60, TimeUnit.SECONDS, queue,
+                    new BulkheadThreadFactory(name), new ThreadPoolExecutor.AbortPolicy());
+            this.permits = new Semaphore(maxAdmitted);
+        }
+
+        /**
+         * Takes a place in the bulkhead, returning {@code false} if it is full.
+         */
+        boolean tryAdmit() {
+            return permits.tryAcquire();
+        }
+
+        /**
+         * Frees a place taken with {@link #tryAdmit}.
+         */
+        void release() {
+            permits.release();
+        }
+
+        /**
+         * Runs a task admitted with {@link #tryAdmit}; the caller frees its place.
+         */
+        void executeAdmitted(Runnable task) {
+            super.execute(task);
+        }
+
+        @Override
+        public void execute(final Runnable task) {
+            if (!tryAdmit()) {
+                throw new RejectedExecutionException("Bulkhead is full");
+            }
+            try {
+                super.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            task.run();
+                        } finally {
+                            release();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                release();
+                throw e;
+            }
+        }
+    }
+
+    private static final class BulkheadThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        BulkheadThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private Bulkheads() {}
+}
@@ -0,0 +1,161 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.v23.rpc;
+
+import io.v.v23.verror.VException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and latency histograms of the calls to a single server method.
+ * <p>
+ * The latency of a call is split into four phases:
+ * <p><ul>
+ *     <li>decode: decoding the arguments received from the client,</li>
+ *     <li>queue: waiting for a thread of the executor the method runs on,</li>
+ *     <li>handler: running the method, until the future it returns is done,</li>
+ *     <li>encode: encoding the results sent to the client.</li>
+ * </ul><p>
+ * The queue phase is only measured for methods invoked by a {@link ReflectInvoker}; for other
+ * invokers it is part of the handler phase.
+ * <p>
+ * Metrics are recorded by the RPC runtime; see {@link ServerMetrics}.
+ */
+public final class MethodMetrics {
+    private static final String UNKNOWN_ERROR_ID = "v.io/v23/verror.Unknown";
+
+    private final String service;
+    private final String method;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final ConcurrentMap<String, AtomicLong> errorsById =
+            new ConcurrentHashMap<String, AtomicLong>();
+    private final LatencyHistogram decodeLatency = new LatencyHistogram();
+    private final LatencyHistogram queueLatency = new LatencyHistogram();
+    private final LatencyHistogram handlerLatency = new LatencyHistogram();
+    private final LatencyHistogram encodeLatency = new LatencyHistogram();
+
+    MethodMetrics(String service, String method) {
+        this.service = service;
+        this.method = method;
+    }
+
+    /**
+     * Returns the name of the service the method belongs to: the name of the server interface
+     * for objects served through a {@link ReflectInvoker}, or the name of the {@link Invoker}
+     * class otherwise.
+     */
+    public String getService() {
+        return service;
+    }
+
+    /**
+     * Returns the name of the method.
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns the number of calls started.
+     */
+    public long getCalls() {
+        return calls.get();
+    }
+
+    /**
+     * Returns the number of calls started but not yet finished.
+     */
+    public long getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Returns the number of calls that finished with an error.
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Returns the number of calls that finished with an error, keyed by the error identifier.
+     * Errors that aren't {@link VException}s are counted under the identifier of unknown errors.
+     */
+    public Map<String, Long> getErrorsById() {
+        Map<String, Long> result = new HashMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : errorsById.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().get());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the histogram of the time spent decoding arguments.
+     */
+    public LatencyHistogram getDecodeLatency() {
+        return decodeLatency;
+    }
+
+    /**
+     * Returns the histogram of the time spent waiting for a thread of the executor.
+     */
+    public LatencyHistogram getQueueLatency() {
+        return queueLatency;
+    }
+
+    /**
+     * Returns the histogram of the time spent in the method.
+     */
+    public LatencyHistogram getHandlerLatency() {
+        return handlerLatency;
+    }
+
+    /**
+     * Returns the histogram of the time spent encoding results.
+     */
+    public LatencyHistogram getEncodeLatency() {
+        return encodeLatency;
+    }
+
+    /**
+     * Records the start of a call.  Each call to this method must be followed by a call to
+     * {@link #callFinished}.
+     */
+    public void callStarted() {
+        calls.incrementAndGet();
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * Records the end of a call.
+     *
+     * @param error the error the call finished with, or {@code null} if it succeeded
+     */
+    public void callFinished(Throwable error) {
+        inFlight.decrementAndGet();
+        if (error == null) {
+            return;
+        }
+        errors.incrementAndGet();
+        String id = error instanceof VException ? ((VException) error).getID() : null;
+        if (id == null || id.isEmpty()) {
+            id = UNKNOWN_ERROR_ID;
+        }
+        AtomicLong count = errorsById.get(id);
+        if (count == null) {
+            count = new AtomicLong();
+            AtomicLong existing = errorsById.putIfAbsent(id, count);
+            if (existing != null) {
+                count = existing;
+            }
+        }
+        count.incrementAndGet();
+    }
+}
@@ -0,0 +1,109 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.v23.rpc;
+
+import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import io.v.v23.context.VContext;
+import io.v.v23.naming.GlobReply;
+import io.v.v23.security.access.Constants;
+import io.v.v23.vdl.ServerSendStream;
+import io.v.v23.vdl.VdlValue;
+import io.v.v23.vdlroot.signature.Interface;
+import io.v.v23.vdlroot.signature.Method;
+import io.v.v23.verror.VException;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+
+/**
+ * An {@link Invoker} that makes the process-wide {@link ServerMetrics} readable over RPC.
+ * <p>
+ * The invoker has a single method, {@value #METHOD}, which takes no arguments and returns the
+ * {@link ServerMetrics#snapshot snapshot} of all metrics as a {@code map[string]int64}.  The
+ * method is tagged with {@link Constants#DEBUG}, so that the default authorizers only allow
+ * clients with debug access to read the metrics.
+ * <p>
+ * Method names starting with {@code "__"} are reserved for the methods the runtime implements
+ * itself, so the metrics are served as a separate object, for example under their own name:
+ * <p><blockquote><pre>
+ * ctx = V.withNewServer(ctx, "myserver/metrics", new MetricsInvoker(), authorizer);
+ * </pre></blockquote><p>
+ * or returned by a dispatcher for a suffix of its choice.
+ */
+public final class MetricsInvoker implements Invoker {
+    /**
+     * The name of the method returning the metrics.
+     */
+    public static final String METHOD = "metrics";
+
+    private static final Type RESULT_TYPE = new TypeToken<Map<String, Long>>(){}.getType();
+
+    @Override
+    public ListenableFuture<Object[]> invoke(
+            VContext ctx, StreamServerCall call, String method, Object[] args) {
+        try {
+            checkMethod(method);
+        } catch (VException e) {
+            return Futures.immediateFailedFuture(e);
+        }
+        return Futures.immediateFuture(new Object[] { ServerMetrics.snapshot() });
+    }
+
+    @Override
+    public ListenableFuture<Interface[]> getSignature(VContext ctx) {
+        return Futures.immediateFuture(new Interface[0]);
+    }
+
+    @Override
+    public ListenableFuture<Method> getMethodSignature(VContext ctx, String method) {
+        return Futures.immediateFailedFuture(
+                new VException("No signature available for method " + method));
+    }
+
+    @Override
+    public ListenableFuture<Type[]> getArgumentTypes(VContext ctx, String method) {
+        try {
+            checkMethod(method);
+        } catch (VException e) {
+            return Futures.immediateFailedFuture(e);
+        }
+        return Futures.immediateFuture(new Type[0]);
+    }
+
+    @Override
+    public ListenableFuture<Type[]> getResultTypes(VContext ctx, String method) {
+        try {
+            checkMethod(method);
+        } catch (VException e) {
+            return Futures.immediateFailedFuture(e);
+        }
+        return Futures.immediateFuture(new Type[] { RESULT_TYPE });
+    }
+
+    @Override
+    public ListenableFuture<VdlValue[]> getMethodTags(VContext ctx, String method) {
+        try {
+            checkMethod(method);
+        } catch (VException e) {
+            return Futures.immediateFailedFuture(e);
+        }
+        return Futures.immediateFuture(new VdlValue[] { Constants.DEBUG });
+    }
+
+    @Override
+    public ListenableFuture<Void> glob(VContext ctx, ServerCall call, String pattern,
+                                       ServerSendStream<GlobReply> stream) {
+        return Futures.immediateFuture(null);
+    }
+
+    private static void checkMethod(String method) throws VException {
+        if (!METHOD.equals(method)) {
+            throw new VException(String.format("Couldn't find method \"%s\"", method));
+        }
+    }
+}
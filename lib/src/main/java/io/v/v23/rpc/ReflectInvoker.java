@@ -4,9 +4,11 @@
 
 package io.v.v23.rpc;
 
+import com.google.common.cache.CacheBuilder;
 import com.google.common.util.concurrent.AsyncFunction;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
 
 import io.v.v23.V;
@@ -20,6 +22,7 @@ import io.v.v23.vdlroot.signature.Interface;
 import io.v.v23.verror.CanceledException;
 import io.v.v23.verror.VException;
 
+import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
@@ -32,7 +35,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.Nullable;
 
 /**
  * An {@link Invoker} that uses reflection to make each compatible exported method in the provided
@@ -114,24 +122,38 @@ import java.util.concurrent.Executor;
  * }</pre></blockquote><p>
  * Typically, the interface and the wrapper will be provided by the vdl generator: users would
  * implement only the object above.
+ * <p>
+ * Methods are invoked on the executor of the server context, unless a different executor is
+ * configured for the whole object or for individual methods (see {@link Bulkheads}).  Calls
+ * rejected by an executor fail with a {@link Bulkheads#ERR_FULL} error.
  */
 public final class ReflectInvoker implements Invoker {
     // A cache of ClassInfo objects, aiming to reduce the cost of expensive
     // reflection operations.
-    private static Map<Class<?>, ClassInfo> serverWrapperClasses =
-        new HashMap<Class<?>, ClassInfo>();
+    private static final ConcurrentMap<Class<?>, ClassInfo> serverWrapperClasses =
+        new ConcurrentHashMap<Class<?>, ClassInfo>();
 
-    private static final class ServerMethod {
-        private final Object wrappedServer;
+    // A cache of ServerClassInfo objects, so that creating an invoker (e.g., for every object
+    // returned by a dispatcher) only instantiates the server wrappers.  The classes are weakly
+    // referenced and the values softly, since the values reference the classes.
+    private static final ConcurrentMap<Class<?>, ServerClassInfo> serverClasses =
+        CacheBuilder.newBuilder().weakKeys().softValues().<Class<?>, ServerClassInfo>build()
+                .asMap();
+
+    // The parts of a server method that depend only on the server wrapper class.
+    private static final class MethodInfo {
         private final Method method;
         private final VdlValue[] tags;
         private final Type[] argTypes;
         private final Type[] resultTypes;
-        private final Type returnType;
+        // Fields holding the return values of a multiple-return method, or null.
+        private final Field[] resultFields;
+        private final MethodMetrics metrics;
 
-        ServerMethod(Object wrappedServer, Method method, VdlValue[] tags) throws VException {
-            this.wrappedServer = wrappedServer;
+        MethodInfo(String service, Method method, VdlValue[] tags) throws VException {
             this.method = method;
+            this.metrics = ServerMetrics.getMethodMetrics(service, method.getName());
+            setAccessible(method);
             this.tags = tags != null ? Arrays.copyOf(tags, tags.length) : new VdlValue[0];
             Type[] args = method.getGenericParameterTypes();
             this.argTypes = Arrays.copyOfRange(args, 2, args.length);
@@ -148,9 +170,10 @@ public final class ReflectInvoker implements Invoker {
             if (returnArgTypes.length != 1) {
                 throw new VException("Multiple return parameters for method: " + method.getName());
             }
-            this.returnType = returnArgTypes[0];
+            Type returnType = returnArgTypes[0];
             if (returnType == Void.class) {
                 this.resultTypes = new Type[0];
+                this.resultFields = null;
             } else if (returnType instanceof Class &&
                     ((Class<?>) returnType).getAnnotation(MultiReturn.class) != null) {
                 // Multiple return values.
@@ -158,37 +181,64 @@ public final class ReflectInvoker implements Invoker {
                 this.resultTypes = new Type[fields.length];
                 for (int i = 0; i < fields.length; ++i) {
                     this.resultTypes[i] = fields[i].getGenericType();
+                    setAccessible(fields[i]);
                 }
+                this.resultFields = fields;
             } else {
                 this.resultTypes = new Type[] { returnType };
+                this.resultFields = null;
             }
         }
+
+        // Suppresses the access checks on every reflective invocation.  All server wrapper
+        // methods and return value fields are public, so this only affects performance.
+        private static void setAccessible(AccessibleObject object) {
+            try {
+                object.setAccessible(true);
+            } catch (SecurityException e) {
+                // Keep the access checks.
+            }
+        }
+    }
+
+    // A server method, shared by all the invokers for objects of the same class.
+    private static final class ServerMethod {
+        // Index of the server wrapper implementing the method.
+        private final int wrapperIndex;
+        private final MethodInfo info;
+
+        ServerMethod(int wrapperIndex, MethodInfo info) {
+            this.wrapperIndex = wrapperIndex;
+            this.info = info;
+        }
         public Method getReflectMethod() {
-            return this.method;
+            return info.method;
         }
         public VdlValue[] getTags() {
-            return Arrays.copyOf(this.tags, this.tags.length);
+            return Arrays.copyOf(info.tags, info.tags.length);
         }
         public Type[] getArgumentTypes() {
-            return Arrays.copyOf(this.argTypes, this.argTypes.length);
+            return Arrays.copyOf(info.argTypes, info.argTypes.length);
         }
         public Type[] getResultTypes() {
-            return Arrays.copyOf(this.resultTypes, this.resultTypes.length);
+            return Arrays.copyOf(info.resultTypes, info.resultTypes.length);
         }
-        public Type getReturnType() {
-            return returnType;
-        }
-        public Object invoke(Object... args) throws IllegalAccessException,
+        public Object invoke(Object[] wrappers, Object... args) throws IllegalAccessException,
                 IllegalArgumentException, InvocationTargetException {
-            return method.invoke(wrappedServer, args);
+            return info.method.invoke(wrappers[wrapperIndex], args);
         }
     }
 
-    private final Map<String, ServerMethod> invokableMethods = new HashMap<String, ServerMethod>();
+    private final Object server;
+
+    // The server wrappers, in the order of ServerClassInfo.wrapperConstructors.
+    private final Object[] wrappers;
 
-    private final Map<Object, Method> signatureMethods = new HashMap<Object, Method>();
+    private final MethodTable methods;
 
-    private final Object server;
+    private final Executor executor;
+
+    private final Map<String, Executor> methodExecutors;
 
     /**
      * Creates a new {@link ReflectInvoker} object.
@@ -197,101 +247,177 @@ public final class ReflectInvoker implements Invoker {
      * @throws VException if the {@link ReflectInvoker} couldn't be created
      */
     public ReflectInvoker(Object obj) throws VException {
+        this(obj, null, null);
+    }
+
+    /**
+     * Creates a new {@link ReflectInvoker} object that invokes methods on the provided executors.
+     *
+     * @param  obj             object whose methods will be invoked
+     * @param  executor        executor on which the methods are invoked, or {@code null} to use
+     *                         the executor of the server context
+     * @param  methodExecutors executors on which individual methods are invoked, keyed by the
+     *                         method name, overriding {@code executor} for those methods; may
+     *                         be {@code null}
+     * @throws VException      if the {@link ReflectInvoker} couldn't be created, or an executor
+     *                         is given for a method that the object doesn't implement
+     */
+    public ReflectInvoker(Object obj, @Nullable Executor executor,
+                          @Nullable Map<String, Executor> methodExecutors) throws VException {
         if (obj == null) {
             throw new VException("Can't create ReflectInvoker with a null object.");
         }
         this.server = obj;
-        List<Object> serverWrappers = wrapServer(obj);
-        for (Object wrapper : serverWrappers) {
-            Class<?> c = wrapper.getClass();
-            ClassInfo cInfo;
-            synchronized (ReflectInvoker.this) {
-                cInfo = ReflectInvoker.serverWrapperClasses.get(c);
-            }
-            if (cInfo == null) {
-                cInfo = new ClassInfo(c);
-
-                // Note that multiple threads might decide to create a new
-                // ClassInfo and insert it
-                // into the cache, but that's just wasted work and not a race
-                // condition.
-                synchronized (ReflectInvoker.this) {
-                    ReflectInvoker.serverWrapperClasses.put(c, cInfo);
-                }
+        this.executor = executor;
+        this.methodExecutors = methodExecutors == null || methodExecutors.isEmpty()
+                ? null : new HashMap<String, Executor>(methodExecutors);
+        ServerClassInfo classInfo = serverClasses.get(obj.getClass());
+        if (classInfo == null) {
+            classInfo = new ServerClassInfo(obj.getClass());
+            // As for ClassInfo, concurrent insertions only waste work.
+            ServerClassInfo existing = serverClasses.putIfAbsent(obj.getClass(), classInfo);
+            if (existing != null) {
+                classInfo = existing;
             }
-
-            Map<String, Method> methods = cInfo.getMethods();
-            Method tagGetter = methods.get("getMethodTags");
-            Method signatureMethod = methods.get("signature");
-            if (signatureMethod != null) {
-                signatureMethods.put(wrapper, signatureMethod);
-            }
-
-            for (Entry<String, Method> m : methods.entrySet()) {
-                // Make sure that the method signature is correct.
-                Type[] argTypes = m.getValue().getGenericParameterTypes();
-                if (argTypes.length < 2 ||
-                        argTypes[0] != VContext.class || argTypes[1] != StreamServerCall.class) {
-                    continue;
-                }
-                // Get the method tags.
-                VdlValue[] tags = null;
-                if (tagGetter != null) {
-                    try {
-                        tags = (VdlValue[])tagGetter.invoke(wrapper, m.getValue().getName());
-                    } catch (IllegalAccessException e) {
-                        // getMethodTags() not defined.
-                    } catch (InvocationTargetException e) {
-                        // getMethodTags() threw an exception.
-                        throw new VException(String.format("Error getting tag for method %s: %s",
-                            m.getKey(), e.getTargetException().getMessage()));
-                    }
-                }
-                invokableMethods.put(m.getKey(), new ServerMethod(wrapper, m.getValue(), tags));
+        }
+        this.wrappers = classInfo.wrap(obj);
+        this.methods = classInfo.getMethods(this.wrappers);
+        if (this.methodExecutors != null) {
+            for (String method : this.methodExecutors.keySet()) {
+                findMethod(method);
             }
         }
     }
 
     @Override
     public ListenableFuture<Object[]> invoke(
-            final VContext ctx, final StreamServerCall call, final String method, final Object[] args) {
-        Executor executor = V.getExecutor(ctx);
+            VContext ctx, StreamServerCall call, String method, Object[] args) {
+        Object[] allArgs = new Object[2 + args.length];
+        System.arraycopy(args, 0, allArgs, 2, args.length);
+        return invokeInPlace(ctx, call, method, allArgs);
+    }
+
+    /**
+     * Same as {@link #invoke invoke}, but takes the arguments starting at index 2 of
+     * {@code allArgs}: the first two elements are reserved for the context and the call, and are
+     * set by this method.  This saves copying the arguments for callers that decode them into
+     * such an array.
+     *
+     * @param  ctx     server context
+     * @param  call    in-flight call information
+     * @param  method  name of the method
+     * @param  allArgs two reserved elements followed by the method arguments; must not be
+     *                 modified by the caller afterwards
+     * @return         a new {@link ListenableFuture} whose result are the method results
+     */
+    public ListenableFuture<Object[]> invokeInPlace(
+            final VContext ctx, StreamServerCall call, final String method,
+            final Object[] allArgs) {
+        allArgs[0] = ctx;
+        allArgs[1] = call;
+        Executor executor = getExecutor(ctx, method);
         if (executor == null) {
             return Futures.immediateFailedFuture(new VException("NULL executor in context: did " +
                     "you derive server context from the context returned by V.init()?"));
         }
+        final Bulkheads.Bulkhead bulkhead =
+                executor instanceof Bulkheads.Bulkhead ? (Bulkheads.Bulkhead) executor : null;
         try {
             final ServerMethod m = findMethod(method);
+            final Object[] wrappers = this.wrappers;
+            if (bulkhead != null && !bulkhead.tryAdmit()) {
+                return Futures.immediateFailedFuture(
+                        new VException(Bulkheads.ERR_FULL, ctx, method));
+            }
             final SettableFuture<ListenableFuture<Object[]>> ret = SettableFuture.create();
-            // Invoke the method.
-            executor.execute(new Runnable() {
+            final long queuedNanos = System.nanoTime();
+            Runnable task = new Runnable() {
                 @Override
                 public void run() {
+                    ListenableFuture<Object[]> reply;
                     try {
-                        if (ctx.isCanceled()) {
-                            ret.setException(new CanceledException(ctx));
-                            return;
+                        reply = invokeMethod(m, wrappers, ctx, method, allArgs, queuedNanos);
+                    } finally {
+                        if (bulkhead != null) {
+                            // Free the place of the call before the client gets the reply, so
+                            // that its next call is admitted.
+                            bulkhead.release();
                         }
-                        // Invoke the method and process results.
-                        Object[] allArgs = new Object[2 + args.length];
-                        allArgs[0] = ctx;
-                        allArgs[1] = call;
-                        System.arraycopy(args, 0, allArgs, 2, args.length);
-                        Object result = m.invoke(allArgs);
-                        ret.set(prepareReply(m, result));
-                    } catch (InvocationTargetException | IllegalAccessException e) {
-                        ret.setException(new VException(String.format(
-                                "Error invoking method %s: %s",
-                                method, e.getCause().toString())));
                     }
+                    ret.set(reply);
+                }
+            };
+            if (bulkhead != null) {
+                try {
+                    bulkhead.executeAdmitted(task);
+                } catch (RejectedExecutionException e) {
+                    bulkhead.release();
+                    throw e;
                 }
-            });
+            } else {
+                executor.execute(task);
+            }
             return Futures.dereference(ret);
+        } catch (RejectedExecutionException e) {
+            return Futures.immediateFailedFuture(
+                    new VException(Bulkheads.ERR_FULL, ctx, method));
         } catch (VException e) {
             return Futures.immediateFailedFuture(e);
         }
     }
 
+    // Invokes the method on the executor, returning its reply.
+    private static ListenableFuture<Object[]> invokeMethod(ServerMethod m, Object[] wrappers,
+                                                           VContext ctx, String method,
+                                                           Object[] allArgs, long queuedNanos) {
+        MethodMetrics metrics = m.info.metrics;
+        long startNanos = System.nanoTime();
+        metrics.getQueueLatency().record(startNanos - queuedNanos);
+        if (ctx.isCanceled()) {
+            return Futures.immediateFailedFuture(new CanceledException(ctx));
+        }
+        ListenableFuture<Object[]> reply = null;
+        try {
+            // Invoke the method and process results.
+            Object result = m.invoke(wrappers, allArgs);
+            reply = prepareReply(m, result);
+        } catch (InvocationTargetException | IllegalAccessException | RuntimeException e) {
+            // The cause is what the handler threw; the other exceptions have none.
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            reply = Futures.immediateFailedFuture(new VException(String.format(
+                    "Error invoking method %s: %s", method, cause.toString())));
+        } finally {
+            recordHandlerLatency(metrics, reply, startNanos);
+        }
+        return reply;
+    }
+
+    // Records the latency of the handler once its reply is complete, or right away if the handler
+    // failed without a reply.
+    private static void recordHandlerLatency(
+            final MethodMetrics metrics, ListenableFuture<Object[]> reply, final long startNanos) {
+        if (reply == null) {
+            metrics.getHandlerLatency().record(System.nanoTime() - startNanos);
+            return;
+        }
+        reply.addListener(new Runnable() {
+            @Override
+            public void run() {
+                metrics.getHandlerLatency().record(System.nanoTime() - startNanos);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private Executor getExecutor(VContext ctx, String method) {
+        if (methodExecutors != null) {
+            Executor methodExecutor = methodExecutors.get(method);
+            if (methodExecutor != null) {
+                return methodExecutor;
+            }
+        }
+        return executor != null ? executor : V.getExecutor(ctx);
+    }
+
     private static ListenableFuture<Object[]> prepareReply(
             final ServerMethod m, Object resultFuture) {
         if (resultFuture == null) {
@@ -304,19 +430,18 @@ public final class ReflectInvoker implements Invoker {
                     "Server method %s didn't return a ListenableFuture.",
                     m.getReflectMethod().getName())));
         }
+        final MethodInfo info = m.info;
         return Futures.transform((ListenableFuture<?>) resultFuture,
                 new AsyncFunction<Object, Object[]>() {
                     @Override
                     public ListenableFuture<Object[]> apply(Object result) throws Exception {
-                        Type[] resultTypes = m.getResultTypes();
-                        switch (resultTypes.length) {
+                        switch (info.resultTypes.length) {
                             case 0:
                                 return Futures.immediateFuture(new Object[0]);  // Void
                             case 1:
                                 return Futures.immediateFuture(new Object[]{result});
                             default: {  // Multiple return values.
-                                Class<?> returnType = (Class<?>) m.getReturnType();
-                                Field[] fields = returnType.getFields();
+                                Field[] fields = info.resultFields;
                                 Object[] reply = new Object[fields.length];
                                 for (int i = 0; i < fields.length; i++) {
                                     try {
@@ -333,12 +458,27 @@ public final class ReflectInvoker implements Invoker {
                 });
     }
 
+    /**
+     * Returns the metrics of the given method.  The metrics are shared by all invokers for
+     * objects implementing the same server interface.
+     *
+     * @param  method     name of the method
+     * @throws VException if the object doesn't implement the method
+     */
+    public MethodMetrics getMetrics(String method) throws VException {
+        return findMethod(method).info.metrics;
+    }
+
     @Override
     public ListenableFuture<Interface[]> getSignature(VContext ctx) {
         List<Interface> interfaces = new ArrayList<Interface>();
-        for (Map.Entry<Object, Method> entry : signatureMethods.entrySet()) {
+        for (int i = 0; i < wrappers.length; i++) {
+            Method signatureMethod = methods.signatureMethods[i];
+            if (signatureMethod == null) {
+                continue;
+            }
             try {
-                interfaces.add((Interface) entry.getValue().invoke(entry.getKey()));
+                interfaces.add((Interface) signatureMethod.invoke(wrappers[i]));
             } catch (IllegalAccessException e) {
                 return Futures.immediateFailedFuture(new VException(String.format(
                         "Could not invoke signature method for server class %s: %s",
@@ -410,7 +550,7 @@ public final class ReflectInvoker implements Invoker {
     }
 
     private ServerMethod findMethod(String method) throws VException {
-        ServerMethod m = this.invokableMethods.get(method);
+        ServerMethod m = this.methods.invokableMethods.get(method);
         if (m == null) {
             throw new VException(String.format("Couldn't find method \"%s\" in class %s",
                     method, server.getClass().getCanonicalName()));
@@ -419,44 +559,124 @@ public final class ReflectInvoker implements Invoker {
     }
 
     /**
-     * Iterates through the Vanadium servers the object implements and generates
-     * server wrappers for each.
+     * Returns the class of the object whose methods this invoker invokes.  The methods, their
+     * tags and their argument and result types depend only on this class.
      */
-    private List<Object> wrapServer(Object srv) throws VException {
-        List<Object> stubs = new ArrayList<Object>();
-        for (Class<?> iface : srv.getClass().getInterfaces()) {
-            VServer vs = iface.getAnnotation(VServer.class);
-            if (vs == null) {
-                continue;
+    public Class<?> getServerClass() {
+        return server.getClass();
+    }
+
+    /**
+     * The server wrapper constructors and the methods of a server class.
+     */
+    private static final class ServerClassInfo {
+        // One for each Vanadium server the class implements.
+        private final Constructor<?>[] wrapperConstructors;
+        // Built from the wrappers of the first invoker of this class: the method tags returned
+        // by the (generated) wrappers don't depend on the wrapped object.
+        private volatile MethodTable methods;
+
+        ServerClassInfo(Class<?> serverClass) throws VException {
+            List<Constructor<?>> constructors = new ArrayList<Constructor<?>>();
+            for (Class<?> iface : serverClass.getInterfaces()) {
+                VServer vs = iface.getAnnotation(VServer.class);
+                if (vs == null) {
+                    continue;
+                }
+                // There should only be one constructor.
+                Constructor<?>[] wrapperConstructors = vs.serverWrapper().getConstructors();
+                if (wrapperConstructors.length != 1) {
+                    throw new RuntimeException(
+                            "Expected ServerWrapper to only have a single constructor");
+                }
+                constructors.add(wrapperConstructors[0]);
             }
-            // There should only be one constructor.
-            if (vs.serverWrapper().getConstructors().length != 1) {
-                throw new RuntimeException(
-                        "Expected ServerWrapper to only have a single constructor");
+            if (constructors.size() == 0) {
+                throw new VException(
+                        "Object does not implement a valid generated server interface.");
             }
-            Constructor<?> constructor = vs.serverWrapper().getConstructors()[0];
+            this.wrapperConstructors = constructors.toArray(new Constructor<?>[0]);
+        }
 
-            try {
-                stubs.add(constructor.newInstance(srv));
-            } catch (InstantiationException e) {
-                throw new RuntimeException("Invalid constructor. Problem instanciating.", e);
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException("Invalid constructor. Illegal access.", e);
-            } catch (InvocationTargetException e) {
-                throw new RuntimeException("Invalid constructor. Problem invoking.", e);
+        /**
+         * Generates the server wrappers of the provided object.
+         */
+        Object[] wrap(Object srv) {
+            Object[] stubs = new Object[wrapperConstructors.length];
+            for (int i = 0; i < wrapperConstructors.length; i++) {
+                try {
+                    stubs[i] = wrapperConstructors[i].newInstance(srv);
+                } catch (InstantiationException e) {
+                    throw new RuntimeException("Invalid constructor. Problem instanciating.", e);
+                } catch (IllegalAccessException e) {
+                    throw new RuntimeException("Invalid constructor. Illegal access.", e);
+                } catch (InvocationTargetException e) {
+                    throw new RuntimeException("Invalid constructor. Problem invoking.", e);
+                }
+            }
+            return stubs;
+        }
+
+        MethodTable getMethods(Object[] wrappers) throws VException {
+            MethodTable result = this.methods;
+            if (result != null) {
+                return result;
+            }
+            Map<String, ServerMethod> invokableMethods = new HashMap<String, ServerMethod>();
+            Method[] signatureMethods = new Method[wrappers.length];
+            for (int i = 0; i < wrappers.length; i++) {
+                Class<?> c = wrappers[i].getClass();
+                ClassInfo cInfo = ReflectInvoker.serverWrapperClasses.get(c);
+                if (cInfo == null) {
+                    cInfo = new ClassInfo(c);
+
+                    // Note that multiple threads might decide to create a new
+                    // ClassInfo and insert it
+                    // into the cache, but that's just wasted work and not a race
+                    // condition.
+                    ClassInfo existing = ReflectInvoker.serverWrapperClasses.putIfAbsent(c, cInfo);
+                    if (existing != null) {
+                        cInfo = existing;
+                    }
+                }
+                signatureMethods[i] = cInfo.getMethods().get("signature");
+                for (Entry<String, MethodInfo> m :
+                        cInfo.getInvokableMethods(wrappers[i]).entrySet()) {
+                    invokableMethods.put(m.getKey(), new ServerMethod(i, m.getValue()));
+                }
             }
+            result = new MethodTable(invokableMethods, signatureMethods);
+            this.methods = result;
+            return result;
         }
-        if (stubs.size() == 0) {
-            throw new VException(
-                    "Object does not implement a valid generated server interface.");
+    }
+
+    private static final class MethodTable {
+        private final Map<String, ServerMethod> invokableMethods;
+        // The signature() method of each server wrapper, or null for wrappers without one.
+        private final Method[] signatureMethods;
+
+        MethodTable(Map<String, ServerMethod> invokableMethods, Method[] signatureMethods) {
+            this.invokableMethods = invokableMethods;
+            this.signatureMethods = signatureMethods;
         }
-        return stubs;
     }
 
     private static class ClassInfo {
         final Map<String, Method> methods = new HashMap<String, Method>();
+        // Name of the server interface, which the wrapper takes as its constructor argument.
+        final String service;
+        // Built from the first wrapper of this class: the method tags returned by the
+        // (generated) wrappers don't depend on the wrapped object.
+        volatile Map<String, MethodInfo> invokableMethods;
 
         ClassInfo(Class<?> c) throws VException {
+            Constructor<?>[] constructors = c.getConstructors();
+            if (constructors.length == 1 && constructors[0].getParameterTypes().length == 1) {
+                this.service = constructors[0].getParameterTypes()[0].getName();
+            } else {
+                this.service = c.getName();
+            }
             Method[] methodList = c.getDeclaredMethods();
             for (int i = 0; i < methodList.length; i++) {
                 Method method = methodList[i];
@@ -474,5 +694,37 @@ public final class ReflectInvoker implements Invoker {
         Map<String, Method> getMethods() {
             return this.methods;
         }
+        Map<String, MethodInfo> getInvokableMethods(Object wrapper) throws VException {
+            Map<String, MethodInfo> result = this.invokableMethods;
+            if (result != null) {
+                return result;
+            }
+            result = new HashMap<String, MethodInfo>();
+            Method tagGetter = methods.get("getMethodTags");
+            for (Entry<String, Method> m : methods.entrySet()) {
+                // Make sure that the method signature is correct.
+                Type[] argTypes = m.getValue().getGenericParameterTypes();
+                if (argTypes.length < 2 ||
+                        argTypes[0] != VContext.class || argTypes[1] != StreamServerCall.class) {
+                    continue;
+                }
+                // Get the method tags.
+                VdlValue[] tags = null;
+                if (tagGetter != null) {
+                    try {
+                        tags = (VdlValue[])tagGetter.invoke(wrapper, m.getValue().getName());
+                    } catch (IllegalAccessException e) {
+                        // getMethodTags() not defined.
+                    } catch (InvocationTargetException e) {
+                        // getMethodTags() threw an exception.
+                        throw new VException(String.format("Error getting tag for method %s: %s",
+                            m.getKey(), e.getTargetException().getMessage()));
+                    }
+                }
+                result.put(m.getKey(), new MethodInfo(service, m.getValue(), tags));
+            }
+            this.invokableMethods = result;
+            return result;
+        }
     }
 }
@@ -0,0 +1,102 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.v23.rpc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Process-wide metrics of the calls served by all RPC servers, per service method.
+ * <p>
+ * Metrics are always on: the RPC runtime records the counters and latencies of every call (see
+ * {@link MethodMetrics}).  They can be read in-process with {@link #getAll} and
+ * {@link #snapshot}, and remotely by serving a {@link MetricsInvoker}.
+ */
+public final class ServerMetrics {
+    private static final double[] PERCENTILES = { 50, 90, 99 };
+
+    private static final ConcurrentMap<String, ConcurrentMap<String, MethodMetrics>> services =
+            new ConcurrentHashMap<String, ConcurrentMap<String, MethodMetrics>>();
+
+    /**
+     * Returns the metrics of the given method of the given service, creating them if needed.
+     */
+    public static MethodMetrics getMethodMetrics(String service, String method) {
+        ConcurrentMap<String, MethodMetrics> methods = services.get(service);
+        if (methods == null) {
+            methods = new ConcurrentHashMap<String, MethodMetrics>();
+            ConcurrentMap<String, MethodMetrics> existing = services.putIfAbsent(service, methods);
+            if (existing != null) {
+                methods = existing;
+            }
+        }
+        MethodMetrics metrics = methods.get(method);
+        if (metrics == null) {
+            metrics = new MethodMetrics(service, method);
+            MethodMetrics existing = methods.putIfAbsent(method, metrics);
+            if (existing != null) {
+                metrics = existing;
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Returns the metrics of all methods that have been served or prepared to be served.
+     */
+    public static List<MethodMetrics> getAll() {
+        List<MethodMetrics> result = new ArrayList<MethodMetrics>();
+        for (ConcurrentMap<String, MethodMetrics> methods : services.values()) {
+            result.addAll(methods.values());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the current value of all metrics, keyed by
+     * {@code <service>.<method>.<metric>}, in key order.  Latencies are in nanoseconds; the
+     * metrics are:
+     * <p><ul>
+     *     <li>{@code calls}, {@code inFlight} and {@code errors}: see {@link MethodMetrics},</li>
+     *     <li>{@code errors.<id>}: the number of errors with the given identifier,</li>
+     *     <li>{@code <phase>.count}, {@code <phase>.p50}, {@code <phase>.p90},
+     *         {@code <phase>.p99} and {@code <phase>.max}, for each of the {@code decode},
+     *         {@code queue}, {@code handler} and {@code encode} phases.</li>
+     * </ul>
+     */
+    public static Map<String, Long> snapshot() {
+        Map<String, Long> result = new TreeMap<String, Long>();
+        for (MethodMetrics metrics : getAll()) {
+            String prefix = metrics.getService() + "." + metrics.getMethod() + ".";
+            result.put(prefix + "calls", metrics.getCalls());
+            result.put(prefix + "inFlight", metrics.getInFlight());
+            result.put(prefix + "errors", metrics.getErrors());
+            for (Map.Entry<String, Long> entry : metrics.getErrorsById().entrySet()) {
+                result.put(prefix + "errors." + entry.getKey(), entry.getValue());
+            }
+            putLatencies(result, prefix + "decode", metrics.getDecodeLatency());
+            putLatencies(result, prefix + "queue", metrics.getQueueLatency());
+            putLatencies(result, prefix + "handler", metrics.getHandlerLatency());
+            putLatencies(result, prefix + "encode", metrics.getEncodeLatency());
+        }
+        return result;
+    }
+
+    private static void putLatencies(
+            Map<String, Long> result, String prefix, LatencyHistogram histogram) {
+        result.put(prefix + ".count", histogram.getCount());
+        for (double percentile : PERCENTILES) {
+            result.put(prefix + ".p" + (int) percentile,
+                    histogram.getPercentileNanos(percentile));
+        }
+        result.put(prefix + ".max", histogram.getMaxNanos());
+    }
+
+    private ServerMetrics() {}
+}
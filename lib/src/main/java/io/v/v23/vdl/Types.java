@@ -331,8 +331,10 @@ public final class Types {
      * @throws IllegalArgumentException if the VDL type can't be constructed
      */
     public static VdlType getVdlTypeFromReflect(Type type) {
-        if (typeCache.containsKey(type)) {
-            return typeCache.get(type);
+        // Cache hits never take a lock; only building new types is serialized.
+        VdlType vdlType = typeCache.get(type);
+        if (vdlType != null) {
+            return vdlType;
         }
         return synchronizedLookupOrBuildType(type);
     }
@@ -446,8 +448,9 @@ public final class Types {
     }
 
     private static synchronized VdlType synchronizedLookupOrBuildType(Type type) {
-        if (typeCache.containsKey(type)) {
-            return typeCache.get(type);
+        VdlType vdlType = typeCache.get(type);
+        if (vdlType != null) {
+            return vdlType;
         }
         ReflectToVdlTypeBuilder builder = new ReflectToVdlTypeBuilder();
         PendingType pendingType = builder.lookupOrBuildPending(type);
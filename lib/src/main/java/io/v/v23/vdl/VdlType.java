@@ -43,77 +43,130 @@ public final class VdlType implements Serializable {
      * We also ensure that there is at most one VDL type instance for each name. These two
      * assumptions make VDL type graph isomorphism check based on type strings straightforward.
      */
-    private static String typeString(VdlType type, final Map<String, VdlType> seen) {
+    private static String typeString(VdlType type) {
+        StringBuilder builder = new StringBuilder();
+        appendTypeString(builder, type, new HashMap<String, VdlType>());
+        return builder.toString();
+    }
+
+    /**
+     * Appends the type string of the provided type to the builder.  A single builder is shared by
+     * the whole type graph, so the cost is linear in the size of the resulting string.
+     */
+    private static void appendTypeString(StringBuilder builder, VdlType type,
+            final Map<String, VdlType> seen) {
         if (!Strings.isNullOrEmpty(type.name)) {
             VdlType seenType = seen.get(type.name);
             if (seenType != null) {
                 if (seenType != type) {
                     throw new IllegalArgumentException("Duplicate type name " + type.name);
                 }
-                return type.name;
+                builder.append(type.name);
+                return;
             }
             seen.put(type.name, type);
-        }
-        String result = "";
-        if (!Strings.isNullOrEmpty(type.name)) {
-            result = type.name + " ";
+            builder.append(type.name).append(' ');
         }
         switch (type.kind) {
             case ENUM:
-                return result + "enum{" + Joiner.on(";").join(type.labels) + "}";
+                builder.append("enum{");
+                Joiner.on(";").appendTo(builder, type.labels);
+                builder.append('}');
+                break;
             case ARRAY:
-                return result + "[" + type.length + "]" + typeString(type.elem, seen);
+                builder.append('[').append(type.length).append(']');
+                appendTypeString(builder, type.elem, seen);
+                break;
             case LIST:
-                return result + "[]" + typeString(type.elem, seen);
+                builder.append("[]");
+                appendTypeString(builder, type.elem, seen);
+                break;
             case SET:
-                return result + "set[" + typeString(type.key, seen) + "]";
+                builder.append("set[");
+                appendTypeString(builder, type.key, seen);
+                builder.append(']');
+                break;
             case MAP:
-                return result + "map[" + typeString(type.key, seen) + "]"
-                        + typeString(type.elem, seen);
+                builder.append("map[");
+                appendTypeString(builder, type.key, seen);
+                builder.append(']');
+                appendTypeString(builder, type.elem, seen);
+                break;
             case STRUCT:
             case UNION:
-                if (type.kind == Kind.STRUCT) {
-                    result += "struct{";
-                } else {
-                    result += "union{";
-                }
+                builder.append(type.kind == Kind.STRUCT ? "struct{" : "union{");
                 for (int i = 0; i < type.fields.size(); i++) {
                     if (i > 0) {
-                        result += ";";
+                        builder.append(';');
                     }
                     VdlField field = type.fields.get(i);
-                    result += field.getName() + " " + typeString(field.getType(), seen);
+                    builder.append(field.getName()).append(' ');
+                    appendTypeString(builder, field.getType(), seen);
                 }
-                return result + "}";
+                builder.append('}');
+                break;
             case OPTIONAL:
-                return result + "?" + typeString(type.elem, seen);
+                builder.append('?');
+                appendTypeString(builder, type.elem, seen);
+                break;
             default:
-                return result + type.kind.name().toLowerCase();
-            }
+                builder.append(type.kind.name().toLowerCase());
+        }
     }
 
     private Object readResolve() {
         return getUniqueType(this);
     }
 
-    private static synchronized VdlType getUniqueType(VdlType type) {
+    /**
+     * Returns the unique instance of the provided type.  Looking up a type that was already
+     * interned doesn't take any locks; interning a new type graph is serialized, and the new
+     * types are only published once all of their key, elem and field types are unique as well.
+     */
+    private static VdlType getUniqueType(VdlType type) {
+        if (type == null) {
+            return null;
+        }
+        if (type.typeString == null) {
+            type.typeString = typeString(type);
+        }
+        VdlType uniqueType = uniqueTypes.get(type.typeString);
+        if (uniqueType != null) {
+            return uniqueType;
+        }
+        synchronized (uniqueTypes) {
+            Map<String, VdlType> interned = new HashMap<String, VdlType>();
+            uniqueType = intern(type, interned);
+            uniqueTypes.putAll(interned);
+            return uniqueType;
+        }
+    }
+
+    /**
+     * Interns the provided type graph, collecting new unique types in {@code interned}.
+     * Must be called with the lock on {@code uniqueTypes} held.
+     */
+    private static VdlType intern(VdlType type, Map<String, VdlType> interned) {
         if (type == null) {
             return null;
         }
         if (type.typeString == null) {
-            type.typeString = typeString(type, new HashMap<String, VdlType>());
+            type.typeString = typeString(type);
         }
         VdlType uniqueType = uniqueTypes.get(type.typeString);
+        if (uniqueType == null) {
+            uniqueType = interned.get(type.typeString);
+        }
         if (uniqueType != null) {
             return uniqueType;
         }
-        uniqueTypes.put(type.typeString, type);
-        type.key = getUniqueType(type.key);
-        type.elem = getUniqueType(type.elem);
+        interned.put(type.typeString, type);
+        type.key = intern(type.key, interned);
+        type.elem = intern(type.elem, interned);
         if (type.fields != null) {
             ImmutableList.Builder<VdlField> builder = new ImmutableList.Builder<VdlField>();
             for (VdlField field : type.fields) {
-                builder.add(new VdlField(field.getName(), getUniqueType(field.getType())));
+                builder.add(new VdlField(field.getName(), intern(field.getType(), interned)));
             }
             type.fields = builder.build();
         }
@@ -6,7 +6,7 @@ package io.v.v23.vom;
 
 import com.google.common.base.Strings;
 import com.google.common.io.ByteStreams;
-import io.v.v23.vdl.GeneratedFromVdl;
+import com.google.common.primitives.Primitives;
 import io.v.v23.vdl.Kind;
 import io.v.v23.vdl.NativeTypes;
 import io.v.v23.vdl.Types;
@@ -28,6 +28,7 @@ import java.io.InputStream;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -41,21 +42,43 @@ import java.util.Set;
  */
 // TODO(sjr): make sure this works for all unexported VDL types.
 public class BinaryDecoder {
-    private final BufferedInputStream in;
+    private final InputStream in;
     private final Map<TypeId, VdlType> decodedTypes;
     private final Map<TypeId, WireType> wireTypes;
     private boolean binaryMagicByteRead;
     private Version version;
     private long[] typeIds;
+    private long[] anyLens;
     private static Version[] allowedVersions = {Constants.VERSION_80, Constants.VERSION_81};
 
     public BinaryDecoder(InputStream in) {
-        this.in = new BufferedInputStream(in);
+        this.in = in.markSupported() ? in : new BufferedInputStream(in);
         this.decodedTypes = new HashMap<TypeId, VdlType>();
         this.wireTypes = new HashMap<TypeId, WireType>();
         this.binaryMagicByteRead = false;
     }
 
+    /**
+     * Creates a decoder that reads directly from the provided (heap or direct) buffer, starting
+     * at its current position.  The buffer's position is advanced past each decoded value.
+     */
+    public BinaryDecoder(ByteBuffer in) {
+        this(new ByteBufferInputStream(in));
+    }
+
+    /**
+     * Creates a decoder that continues the stream decoded by {@code other}: the version byte
+     * is assumed to be already read, and all types known to {@code other} are shared with the
+     * new decoder.
+     */
+    BinaryDecoder(InputStream in, BinaryDecoder other) {
+        this.in = in.markSupported() ? in : new BufferedInputStream(in);
+        this.decodedTypes = other.decodedTypes;
+        this.wireTypes = other.wireTypes;
+        this.binaryMagicByteRead = other.binaryMagicByteRead;
+        this.version = other.version;
+    }
+
     private static Version versionFromByte(byte b) {
         for (Version v : allowedVersions) {
             if (v.getValue() == b) {
@@ -74,11 +97,54 @@ public class BinaryDecoder {
      * @throws ConversionException
      */
     public Object decodeValue(Type targetType) throws IOException, ConversionException {
+        return decodeValueMessage(decodeHeader(), targetType, null);
+    }
+
+    /**
+     * Decodes a VDL value, projected onto the provided set of fields.  Returns an instance of
+     * provided {@code Type}.
+     * <p>
+     * If the encoded value is a struct, only the fields with the provided (VDL) names are
+     * decoded; all other fields are skipped over without being materialized and are left at
+     * their initial values in the result.  For values of other kinds, the projection is ignored.
+     *
+     * @param targetType the type of returned object
+     * @param fields     names of the struct fields to decode
+     * @return the decoded value
+     * @throws IOException
+     * @throws ConversionException
+     */
+    public Object decodeValue(Type targetType, Set<String> fields)
+            throws IOException, ConversionException {
+        return decodeValueMessage(decodeHeader(), targetType, fields);
+    }
+
+    /**
+     * Reads the version byte (if not read already) and all type messages preceding the next
+     * value message.  Returns the type of the value.
+     */
+    VdlType decodeHeader() throws IOException, ConversionException {
         if (!binaryMagicByteRead) {
             version = versionFromByte((byte)in.read());
             binaryMagicByteRead = true;
         }
-        VdlType actualType = decodeType();
+        return decodeType();
+    }
+
+    /**
+     * Reads the value message whose header was read by {@link #decodeHeader}.
+     */
+    Object decodeValueMessage(VdlType actualType, Type targetType)
+            throws IOException, ConversionException {
+        return decodeValueMessage(actualType, targetType, null);
+    }
+
+    /**
+     * Reads the value message whose header was read by {@link #decodeHeader}, decoding only the
+     * provided struct fields if {@code fields} isn't {@code null}.
+     */
+    Object decodeValueMessage(VdlType actualType, Type targetType, Set<String> fields)
+            throws IOException, ConversionException {
         assertTypesCompatible(actualType, targetType);
         if (targetType == Object.class) {
             try {
@@ -87,7 +153,7 @@ public class BinaryDecoder {
                 throw new ConversionException(e);
             }
         }
-        return readValueMessage(actualType, targetType);
+        return readValueMessage(actualType, targetType, fields);
     }
 
     /**
@@ -108,14 +174,19 @@ public class BinaryDecoder {
 
     private void assertTypesCompatible(VdlType actualType, Type targetType)
             throws ConversionException {
-        if (targetType != Object.class && targetType != VdlValue.class && !TypeCompatibility.
-                compatible(actualType, Types.getVdlTypeFromReflect(targetType))) {
+        if (targetType != Object.class && targetType != VdlValue.class
+                && !ConversionPlan.get(actualType, targetType).isCompatible()) {
             throw new ConversionException(actualType, targetType, "types are incompatible");
         }
     }
 
     private Object readValueMessage(VdlType actualType, Type targetType) throws IOException,
             ConversionException {
+        return readValueMessage(actualType, targetType, null);
+    }
+
+    private Object readValueMessage(VdlType actualType, Type targetType, Set<String> fields)
+            throws IOException, ConversionException {
         if (version != Constants.VERSION_80 && (BinaryUtil.hasAny(actualType) || BinaryUtil.hasTypeObject(actualType))) {
             long len = BinaryUtil.decodeUint(in);
             typeIds = new long[(int)len];
@@ -125,14 +196,21 @@ public class BinaryDecoder {
         }
         if (version != Constants.VERSION_80 && BinaryUtil.hasAny(actualType)) {
             long len = BinaryUtil.decodeUint(in);
+            anyLens = new long[(int)len];
             for (int i = 0; i < len; i++) {
-                BinaryUtil.decodeUint(in); // read anyMsgLen (ignore value -- it is unused)
+                anyLens[i] = BinaryUtil.decodeUint(in);
             }
         }
         if (BinaryUtil.hasBinaryMsgLen(actualType)) {
             // Do nothing with this information for now.
             BinaryUtil.decodeUint(in);
         }
+        if (fields != null && actualType.getKind() == Kind.STRUCT) {
+            ConversionPlan plan = ConversionPlan.get(actualType, targetType);
+            if (plan.getConverter() == null && plan.getTarget().getKind() == Kind.STRUCT) {
+                return readVdlStruct(actualType, plan.getTarget(), fields);
+            }
+        }
         return readValue(actualType, targetType);
     }
 
@@ -158,6 +236,15 @@ public class BinaryDecoder {
         }
     }
 
+    /**
+     * Builds the VDL types for all wire types read so far.
+     */
+    void resolveTypes() throws CorruptVomStreamException {
+        for (TypeId typeId : new ArrayList<TypeId>(wireTypes.keySet())) {
+            getType(typeId);
+        }
+    }
+
     private VdlType lookupType(TypeId typeId) {
         VdlType type = BootstrapType.getBootstrapType(typeId);
         if (type != null) {
@@ -183,21 +270,10 @@ public class BinaryDecoder {
 
     private Object readValue(VdlType actualType, Type targetType)
             throws IOException, ConversionException {
-        ConversionTarget target;
-        if (targetType == VdlValue.class) {
-            target = new ConversionTarget(actualType);
-        } else if (targetType == Object.class) {
-            // This can happen only inside VDL Any, as top-level type is constructed
-            // Outside of readValue().
-            try {
-                targetType = Types.getReflectTypeForVdl(actualType);
-                target = new ConversionTarget(targetType, actualType);
-            } catch (IllegalArgumentException e) {
-                target = new ConversionTarget(actualType);
-            }
-        } else {
-            target = new ConversionTarget(targetType);
-        }
+        // Object targets can happen only inside VDL Any, as top-level type is constructed
+        // outside of readValue().
+        ConversionPlan plan = ConversionPlan.get(actualType, targetType);
+        ConversionTarget target = plan.getTarget();
 
         // Solve any/optional case.
         if (actualType.getKind() != Kind.ANY && actualType.getKind() != Kind.OPTIONAL) {
@@ -210,7 +286,7 @@ public class BinaryDecoder {
         }
 
         // Convert native value.
-        NativeTypes.Converter converter = Types.getNativeTypeConverter(target.getTargetType());
+        NativeTypes.Converter converter = plan.getConverter();
         if (converter != null) {
             VdlValue value = (VdlValue) readValue(actualType, converter.getWireType());
             return converter.nativeFromVdlValue(value);
@@ -243,7 +319,7 @@ public class BinaryDecoder {
             case SET:
                 return readVdlMapOrSet(actualType, target);
             case STRUCT:
-                return readVdlStruct(actualType, target);
+                return readVdlStruct(actualType, target, null);
             case UNION:
                 return readVdlUnion(actualType, target);
             case OPTIONAL:
@@ -347,12 +423,23 @@ public class BinaryDecoder {
             }
             Class<?> elementClass = ReflectUtil.getRawClass(elementType);
             Object array = Array.newInstance(elementClass, targetLen);
+            if (readPrimitiveArray(actualType.getElem(), array, len)) {
+                return ReflectUtil.createGeneric(target, array);
+            }
             for (int i = 0; i < len; i++) {
                 ReflectUtil.setArrayValue(array, i, readValue(actualType.getElem(), elementType), elementClass);
             }
             return ReflectUtil.createGeneric(target, array);
         } else {
-            List<Object> list = new ArrayList<Object>();
+            List<Object> list = new ArrayList<Object>(len);
+            Class<?> elementClass = ReflectUtil.getRawClass(elementType);
+            if (elementClass != null && Primitives.isWrapperType(elementClass)) {
+                Object array = Array.newInstance(Primitives.unwrap(elementClass), len);
+                if (readPrimitiveArray(actualType.getElem(), array, len)) {
+                    addBoxed(list, array, len);
+                    return ReflectUtil.createGeneric(target, list);
+                }
+            }
             for (int i = 0; i < len; i++) {
                 list.add(readValue(actualType.getElem(), elementType));
             }
@@ -360,6 +447,126 @@ public class BinaryDecoder {
         }
     }
 
+    /**
+     * Reads {@code len} elements of the provided bool, integer or floating point VDL type
+     * straight into a primitive Java array, without boxing the elements or going through
+     * per-element conversion.  Returns {@code false} without reading anything if the element
+     * type can't be stored in the array without a range or precision check; the caller then
+     * falls back to the general conversion path.
+     */
+    private boolean readPrimitiveArray(VdlType elemType, Object array, int len)
+            throws IOException {
+        Kind kind = elemType.getKind();
+        if (kind == Kind.INT8 && version == Constants.VERSION_80) {
+            throw new RuntimeException("int8 is unsupported in VOM version 0x80");
+        }
+        if (array instanceof long[]) {
+            long[] values = (long[]) array;
+            if (kind == Kind.INT8 || kind == Kind.INT16 || kind == Kind.INT32
+                    || kind == Kind.INT64) {
+                for (int i = 0; i < len; i++) {
+                    values[i] = BinaryUtil.decodeInt(in);
+                }
+                return true;
+            } else if (kind == Kind.UINT16 || kind == Kind.UINT32) {
+                for (int i = 0; i < len; i++) {
+                    values[i] = BinaryUtil.decodeUint(in);
+                }
+                return true;
+            }
+        } else if (array instanceof int[]) {
+            int[] values = (int[]) array;
+            if (kind == Kind.INT8 || kind == Kind.INT16 || kind == Kind.INT32) {
+                for (int i = 0; i < len; i++) {
+                    values[i] = (int) BinaryUtil.decodeInt(in);
+                }
+                return true;
+            } else if (kind == Kind.UINT16) {
+                for (int i = 0; i < len; i++) {
+                    values[i] = (int) BinaryUtil.decodeUint(in);
+                }
+                return true;
+            }
+        } else if (array instanceof short[]) {
+            short[] values = (short[]) array;
+            if (kind == Kind.INT8 || kind == Kind.INT16) {
+                for (int i = 0; i < len; i++) {
+                    values[i] = (short) BinaryUtil.decodeInt(in);
+                }
+                return true;
+            }
+        } else if (array instanceof double[]) {
+            double[] values = (double[]) array;
+            if (kind == Kind.FLOAT32 || kind == Kind.FLOAT64) {
+                for (int i = 0; i < len; i++) {
+                    values[i] = BinaryUtil.decodeDouble(in);
+                }
+                return true;
+            }
+        } else if (array instanceof float[]) {
+            float[] values = (float[]) array;
+            if (kind == Kind.FLOAT32) {
+                for (int i = 0; i < len; i++) {
+                    values[i] = (float) BinaryUtil.decodeDouble(in);
+                }
+                return true;
+            }
+        } else if (array instanceof boolean[]) {
+            boolean[] values = (boolean[]) array;
+            if (kind == Kind.BOOL) {
+                for (int i = 0; i < len; i++) {
+                    if (version == Constants.VERSION_80) {
+                        values[i] = BinaryUtil.decodeBoolean(in);
+                    } else {
+                        values[i] = BinaryUtil.decodeUint(in) != 0;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the first {@code len} elements of a primitive array filled in by
+     * {@link #readPrimitiveArray} to {@code list}, boxed.
+     */
+    private static void addBoxed(List<Object> list, Object array, int len) {
+        if (array instanceof long[]) {
+            long[] values = (long[]) array;
+            for (int i = 0; i < len; i++) {
+                list.add(values[i]);
+            }
+        } else if (array instanceof int[]) {
+            int[] values = (int[]) array;
+            for (int i = 0; i < len; i++) {
+                list.add(values[i]);
+            }
+        } else if (array instanceof short[]) {
+            short[] values = (short[]) array;
+            for (int i = 0; i < len; i++) {
+                list.add(values[i]);
+            }
+        } else if (array instanceof double[]) {
+            double[] values = (double[]) array;
+            for (int i = 0; i < len; i++) {
+                list.add(values[i]);
+            }
+        } else if (array instanceof float[]) {
+            float[] values = (float[]) array;
+            for (int i = 0; i < len; i++) {
+                list.add(values[i]);
+            }
+        } else if (array instanceof boolean[]) {
+            boolean[] values = (boolean[]) array;
+            for (int i = 0; i < len; i++) {
+                list.add(values[i]);
+            }
+        } else {
+            throw new IllegalArgumentException("Not a supported primitive array: " + array);
+        }
+    }
+
     private Object readVdlBool(ConversionTarget target) throws IOException, ConversionException {
         byte b;
         if (version == Constants.VERSION_80) {
@@ -405,20 +612,8 @@ public class BinaryDecoder {
         } else if (targetClass == VdlStruct.class) {
             return VdlValue.class;
         } else {
-            String fieldName = (String) key;
-            try {
-                Field field = targetClass.getDeclaredField(BinaryUtil.firstCharToLower(fieldName));
-                return field.getGenericType();
-            } catch (NoSuchFieldException e) {
-                // OK, we'll try to look at annotations.
-            }
-            for (Field field : targetClass.getDeclaredFields()) {
-                GeneratedFromVdl annotation = field.getAnnotation(GeneratedFromVdl.class);
-                if (annotation != null && annotation.name().equals(fieldName)) {
-                    return field.getGenericType();
-                }
-            }
-            return Object.class;
+            Field field = StructCodec.forClass(targetClass).field((String) key);
+            return field != null ? field.getGenericType() : Object.class;
         }
     }
 
@@ -439,10 +634,7 @@ public class BinaryDecoder {
                 return;
             }
             try {
-                Field f = data.getClass().getDeclaredField(
-                        BinaryUtil.firstCharToLower((String) key));
-                f.setAccessible(true);
-                f.set(data, elem);
+                StructCodec.forClass(data.getClass()).field((String) key).set(data, elem);
             } catch (Exception e) {
                 throw new ConversionException("Can't set field " + key + " to " + elem + " of "
                         + target.getTargetType(), e);
@@ -481,7 +673,7 @@ public class BinaryDecoder {
                 if (targetElemType == VdlAny.class) {
                     elem = new VdlAny(Boolean.class, true);
                 } else {
-                    elem = ReflectUtil.createPrimitive(new ConversionTarget(targetElemType),
+                    elem = ReflectUtil.createPrimitive(ConversionPlan.target(targetElemType),
                             true, Boolean.TYPE);
                 }
             } else {
@@ -492,8 +684,15 @@ public class BinaryDecoder {
         return data;
     }
 
-    private Object readVdlStruct(VdlType actualType, ConversionTarget target)
-            throws IOException, ConversionException {
+    /**
+     * Reads a VDL struct.  If {@code projection} isn't {@code null}, only the fields whose names
+     * it contains are read; the remaining fields are skipped.
+     */
+    private Object readVdlStruct(VdlType actualType, ConversionTarget target,
+            Set<String> projection) throws IOException, ConversionException {
+        if (target.getKind() == Kind.STRUCT && target.getTargetClass() != VdlStruct.class) {
+            return readVdlStructWithCodec(actualType, target, projection);
+        }
         Object data = createMapOrSetOrStruct(target);
         Type targetKeyType = getTargetKeyType(target);
         boolean[] seen = new boolean[actualType.getFields().size()];
@@ -506,9 +705,13 @@ public class BinaryDecoder {
             int index = (int) BinaryUtil.decodeUint(in);
             seen[index] = true;
             VdlField field = actualType.getFields().get(index);
+            if (projection != null && !projection.contains(field.getName())) {
+                skipValue(field.getType());
+                continue;
+            }
             Type targetElemType = getMapElemOrStructFieldType(target, field.getName());
             Object key = ConvertUtil.convertFromBytes(BinaryUtil.getBytes(field.getName()),
-                    new ConversionTarget(targetKeyType));
+                    ConversionPlan.target(targetKeyType));
             Object elem = readValue(field.getType(), targetElemType);
             setMapElemOrStructField(target, data, key, elem, targetElemType);
         }
@@ -523,7 +726,7 @@ public class BinaryDecoder {
             VdlField field = actualType.getFields().get(i);
             Type elemType = getMapElemOrStructFieldType(target, field.getName());
             Object key = ConvertUtil.convertFromBytes(BinaryUtil.getBytes(field.getName()),
-                    new ConversionTarget(targetKeyType));
+                    ConversionPlan.target(targetKeyType));
             VdlType elemVdlType = target.getVdlType().getElem();
             Object elem;
             // All user-defined types and java primitives have a default constructor that returns
@@ -545,6 +748,43 @@ public class BinaryDecoder {
         return data;
     }
 
+    /**
+     * Reads a VDL struct into a Java class, using the class's {@link StructCodec} to resolve and
+     * set the fields.
+     */
+    private Object readVdlStructWithCodec(VdlType actualType, ConversionTarget target,
+            Set<String> projection) throws IOException, ConversionException {
+        Object data = ReflectUtil.createStruct(target);
+        Field[] fields = StructCodec.forClass(target.getTargetClass()).fields(actualType);
+        while (true) {
+            if (peekFlag() == Constants.WIRE_CTRL_END) {
+                ByteStreams.skipFully(in, 1);
+                break;
+            }
+            int index = (int) BinaryUtil.decodeUint(in);
+            if (index < 0 || index >= fields.length) {
+                throw new CorruptVomStreamException("Struct field index " + index +
+                        " is out of range 0..." + (fields.length - 1));
+            }
+            VdlType fieldType = actualType.getFields().get(index).getType();
+            Field field = fields[index];
+            if (field == null || (projection != null
+                    && !projection.contains(actualType.getFields().get(index).getName()))) {
+                // No such field or the field isn't wanted, just skip it.
+                skipValue(fieldType);
+                continue;
+            }
+            Object elem = readValue(fieldType, field.getGenericType());
+            try {
+                field.set(data, elem);
+            } catch (Exception e) {
+                throw new ConversionException("Can't set field " + field.getName() + " to " + elem
+                        + " of " + target.getTargetType(), e);
+            }
+        }
+        return data;
+    }
+
     private Object readVdlUnion(VdlType actualType, ConversionTarget target) throws IOException,
             ConversionException {
         int index = (int) BinaryUtil.decodeUint(in);
@@ -564,21 +804,14 @@ public class BinaryDecoder {
         if (targetClass.getSuperclass() != VdlUnion.class) {
             targetClass = targetClass.getSuperclass();
         }
-        // Look-up field class in target.
-        Class<?> fieldClass = null;
-        for (Class<?> klass : targetClass.getDeclaredClasses()) {
-            if (klass.getName().equals(targetClass.getName() + "$" + actualField.getName())) {
-                fieldClass = klass;
-                break;
-            }
-        }
+        UnionCodec.FieldClass fieldClass =
+                UnionCodec.forClass(targetClass).fields(actualType)[index];
         if (fieldClass == null) {
             throw new ConversionException(actualType, target.getTargetType());
         }
+        Object elem = readValue(actualElemType, fieldClass.getElemType());
         try {
-            Type elemType = fieldClass.getDeclaredField("elem").getGenericType();
-            return fieldClass.getConstructor(ReflectUtil.getRawClass(elemType)).newInstance(
-                    readValue(actualElemType, elemType));
+            return fieldClass.getConstructor().newInstance(elem);
         } catch (Exception e) {
             throw new ConversionException(actualType, target.getTargetType(), e);
         }
@@ -622,6 +855,101 @@ public class BinaryDecoder {
         return new VdlTypeObject(getType(new TypeId(typeId)));
     }
 
+    /**
+     * Skips over a value of the provided type without materializing it.  In VOM versions that
+     * record the lengths of any values, those are skipped in one go.
+     */
+    private void skipValue(VdlType type) throws IOException {
+        switch (type.getKind()) {
+            case BOOL:
+            case BYTE:
+                if (version == Constants.VERSION_80) {
+                    ByteStreams.skipFully(in, 1);
+                } else {
+                    BinaryUtil.decodeUint(in);
+                }
+                break;
+            case ENUM:
+            case FLOAT32:
+            case FLOAT64:
+            case INT8:
+            case INT16:
+            case INT32:
+            case INT64:
+            case UINT16:
+            case UINT32:
+            case UINT64:
+            case TYPEOBJECT:
+                BinaryUtil.decodeUint(in);
+                break;
+            case STRING:
+                ByteStreams.skipFully(in, BinaryUtil.decodeUint(in));
+                break;
+            case ARRAY:
+            case LIST: {
+                long len = BinaryUtil.decodeUint(in);
+                if (type.getKind() == Kind.ARRAY) {
+                    len = type.getLength();
+                }
+                if (type.getElem().getKind() == Kind.BYTE) {
+                    ByteStreams.skipFully(in, len);
+                } else {
+                    for (long i = 0; i < len; i++) {
+                        skipValue(type.getElem());
+                    }
+                }
+                break;
+            }
+            case SET:
+            case MAP: {
+                long len = BinaryUtil.decodeUint(in);
+                for (long i = 0; i < len; i++) {
+                    skipValue(type.getKey());
+                    if (type.getKind() == Kind.MAP) {
+                        skipValue(type.getElem());
+                    }
+                }
+                break;
+            }
+            case STRUCT:
+                while (peekFlag() != Constants.WIRE_CTRL_END) {
+                    skipValue(fieldType(type, BinaryUtil.decodeUint(in)));
+                }
+                ByteStreams.skipFully(in, 1);
+                break;
+            case UNION:
+                skipValue(fieldType(type, BinaryUtil.decodeUint(in)));
+                break;
+            case OPTIONAL:
+                if (peekFlag() == Constants.WIRE_CTRL_NIL) {
+                    ByteStreams.skipFully(in, 1);
+                } else {
+                    skipValue(type.getElem());
+                }
+                break;
+            case ANY:
+                if (peekFlag() == Constants.WIRE_CTRL_NIL) {
+                    ByteStreams.skipFully(in, 1);
+                } else if (version == Constants.VERSION_80) {
+                    skipValue(getType(new TypeId(BinaryUtil.decodeUint(in))));
+                } else {
+                    BinaryUtil.decodeUint(in);  // type id index
+                    ByteStreams.skipFully(in, anyLens[(int) BinaryUtil.decodeUint(in)]);
+                }
+                break;
+            default:
+                throw new CorruptVomStreamException("Can't skip a value of type " + type);
+        }
+    }
+
+    private static VdlType fieldType(VdlType type, long index) throws CorruptVomStreamException {
+        if (index < 0 || index >= type.getFields().size()) {
+            throw new CorruptVomStreamException("Field index " + index + " is out of range 0..."
+                    + (type.getFields().size() - 1));
+        }
+        return type.getFields().get((int) index).getType();
+    }
+
     private byte peekFlag() throws IOException {
         in.mark(1);
         byte flag = (byte) in.read();
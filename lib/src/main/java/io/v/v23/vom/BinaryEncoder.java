@@ -37,6 +37,7 @@ import java.io.OutputStream;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -49,15 +50,29 @@ import java.util.Set;
  * BinaryEncoder writes VDL values to {@code OutputStream} in binary VOM format.
  */
 public class BinaryEncoder {
+    private static final int HAS_ANY = 1;
+    private static final int HAS_TYPE_OBJECT = 2;
+    private static final int HAS_BINARY_MSG_LEN = 4;
+
+    // Limits on the state that a pooled encoder keeps between messages.
+    private static final int MAX_POOLED_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_CACHED_MESSAGE_FLAGS = 256;
+
+    private static final ThreadLocal<BinaryEncoder> pooledEncoder =
+            new ThreadLocal<BinaryEncoder>();
+
     private final EncodingStream valueBuffer;
     private final EncodingStream typeBuffer;
+    private final EncodingStream headerBuffer;
     private final OutputStream out;
     private final Map<VdlType, TypeId> visitedTypes;
+    private final Map<VdlType, Integer> messageFlags;
+    private final LongList typeIds;
+    private final LongList anyLens;
     private TypeId nextTypeId;
     private boolean binaryMagicByteWritten;
     private Version version;
-    private List<Long> typeIds;
-    private List<Long> anyLens;
+    private boolean inUse;
 
     public BinaryEncoder(OutputStream out) {
         this(out, Constants.DEFAULT_VERSION);
@@ -66,13 +81,30 @@ public class BinaryEncoder {
     public BinaryEncoder(OutputStream out, Version version) {
         this.valueBuffer = new EncodingStream();
         this.typeBuffer = new EncodingStream();
+        this.headerBuffer = new EncodingStream();
         this.out = out;
         this.visitedTypes = new HashMap<VdlType, TypeId>();
+        this.messageFlags = new HashMap<VdlType, Integer>();
+        this.typeIds = new LongList();
+        this.anyLens = new LongList();
         this.nextTypeId = Constants.WIRE_ID_FIRST_USER_TYPE;
         this.binaryMagicByteWritten = false;
         this.version = version;
     }
 
+    /**
+     * Creates an encoder that writes directly into the provided (heap or direct) buffer,
+     * starting at its current position.  Encoding fails with an {@link IOException} if the
+     * buffer runs out of room.
+     */
+    public BinaryEncoder(ByteBuffer out) {
+        this(new ByteBufferOutputStream(out));
+    }
+
+    public BinaryEncoder(ByteBuffer out, Version version) {
+        this(new ByteBufferOutputStream(out), version);
+    }
+
     /**
      * Encodes a value into binary VOM format.
      *
@@ -86,12 +118,76 @@ public class BinaryEncoder {
             out.write(version.getValue());
         }
         valueBuffer.reset();
-        typeIds = new ArrayList<Long>();
-        anyLens = new ArrayList<Long>();
+        typeIds.clear();
+        anyLens.clear();
         TypeId typeId = getType(type);
         writeValue(valueBuffer, value, type);
-        writeMessage(valueBuffer, BinaryUtil.hasAny(type), BinaryUtil.hasTypeObject(type),
-                false, typeId.getValue(), BinaryUtil.hasBinaryMsgLen(type));
+        int flags = getMessageFlags(type);
+        writeMessage(valueBuffer, (flags & HAS_ANY) != 0, (flags & HAS_TYPE_OBJECT) != 0,
+                false, typeId.getValue(), (flags & HAS_BINARY_MSG_LEN) != 0);
+    }
+
+    /**
+     * Encodes a value into a standalone message in binary VOM format, using the default VOM
+     * version.
+     * <p>
+     * The encoder used is pooled per thread, so that encoding many small messages only allocates
+     * the returned bytes.
+     *
+     * @param type runtime VDL type of the value
+     * @param value the value to encode
+     * @throws IOException
+     */
+    static byte[] encodeMessage(VdlType type, Object value) throws IOException {
+        BinaryEncoder encoder = pooledEncoder.get();
+        if (encoder == null) {
+            encoder = new BinaryEncoder(new EncodingStream());
+            pooledEncoder.set(encoder);
+        } else if (encoder.inUse) {
+            // Re-entrant call, e.g., from a native type converter.
+            encoder = new BinaryEncoder(new EncodingStream());
+        }
+        EncodingStream out = (EncodingStream) encoder.out;
+        encoder.inUse = true;
+        try {
+            encoder.encodeValue(type, value);
+            return out.toByteArray();
+        } finally {
+            encoder.inUse = false;
+            encoder.reset();
+            if (out.capacity() > MAX_POOLED_BUFFER_SIZE
+                    || encoder.valueBuffer.capacity() > MAX_POOLED_BUFFER_SIZE
+                    || encoder.typeBuffer.capacity() > MAX_POOLED_BUFFER_SIZE) {
+                if (pooledEncoder.get() == encoder) {
+                    pooledEncoder.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Resets the encoder to the state of a new encoder, i.e., the next value is written to the
+     * output stream as a new VOM stream.  The output stream must be an {@link EncodingStream}.
+     */
+    private void reset() {
+        ((EncodingStream) out).reset();
+        visitedTypes.clear();
+        nextTypeId = Constants.WIRE_ID_FIRST_USER_TYPE;
+        binaryMagicByteWritten = false;
+        if (messageFlags.size() > MAX_CACHED_MESSAGE_FLAGS) {
+            messageFlags.clear();
+        }
+    }
+
+    private int getMessageFlags(VdlType type) {
+        Integer flags = messageFlags.get(type);
+        if (flags == null) {
+            flags = (BinaryUtil.hasAny(type) ? HAS_ANY : 0)
+                    | (BinaryUtil.hasTypeObject(type) ? HAS_TYPE_OBJECT : 0)
+                    | (BinaryUtil.hasBinaryMsgLen(type) ? HAS_BINARY_MSG_LEN : 0);
+            messageFlags.put(type, flags);
+        }
+        return flags;
     }
 
     /**
@@ -115,35 +211,61 @@ public class BinaryEncoder {
         encodeValue(value.vdlType(), value);
     }
 
+    /**
+     * Writes the definitions of the provided type (and of all types it depends on) that haven't
+     * been written yet, without writing any value.
+     *
+     * @param type the VDL type whose definition is to be written
+     * @throws IOException
+     */
+    void encodeType(VdlType type) throws IOException {
+        if (!binaryMagicByteWritten) {
+            binaryMagicByteWritten = true;
+            out.write(version.getValue());
+        }
+        typeIds.clear();
+        anyLens.clear();
+        getType(type);
+    }
+
     private void writeMessage(ByteArrayOutputStream buffer, boolean hasAny, boolean hasTypeObject,
                               boolean typeIncomplete, long messageId, boolean encodeLength)
             throws IOException {
+        // Assemble the message header, so that it is written with a single call.
+        EncodingStream header = headerBuffer;
+        header.reset();
         if (version != Constants.VERSION_80 && typeIncomplete) {
-            out.write(Constants.WIRE_CTRL_TYPE_INCOMPLETE);
+            header.write(Constants.WIRE_CTRL_TYPE_INCOMPLETE);
         }
-        BinaryUtil.encodeInt(out, messageId);
+        BinaryUtil.encodeInt(header, messageId);
         if (version != Constants.VERSION_80 && (hasAny || hasTypeObject) && messageId > 0) {
-            BinaryUtil.encodeUint(out, typeIds.size());
-            for (Long id : typeIds) {
-                BinaryUtil.encodeUint(out, id);
+            header.writeUint(typeIds.size());
+            for (int i = 0; i < typeIds.size(); i++) {
+                header.writeUint(typeIds.get(i));
             }
-            typeIds = null;
         }
         if (version != Constants.VERSION_80 && hasAny && messageId > 0) {
-            BinaryUtil.encodeUint(out, anyLens.size());
-            for (Long len : anyLens) {
-                BinaryUtil.encodeUint(out, len);
+            header.writeUint(anyLens.size());
+            for (int i = 0; i < anyLens.size(); i++) {
+                header.writeUint(anyLens.get(i));
             }
-            anyLens = null;
         }
         if (encodeLength) {
-            BinaryUtil.encodeUint(out, buffer.size());
+            header.writeUint(buffer.size());
         }
+        header.writeTo(out);
         buffer.writeTo(out);
     }
 
     private TypeId getType(VdlType type) throws IOException {
-        return getTypeInternal(type, new HashSet<VdlType>());
+        TypeId typeId = BootstrapType.getBootstrapTypeId(type);
+        if (typeId == null) {
+            typeId = visitedTypes.get(type);
+        }
+        if (typeId != null) {
+            return typeId;
+        }
+        return encodeType(type, new HashSet<VdlType>());
     }
 
     private TypeId getTypeInternal(VdlType type, Set<VdlType> pending) throws IOException {
@@ -341,7 +463,7 @@ public class BinaryEncoder {
             if (version != Constants.VERSION_80) {
                 anyLenIndex = anyLens.size();
                 BinaryUtil.encodeUint(out, anyLenIndex);
-                anyLens.add(0L);
+                anyLens.add(0);
                 startPos = out.getCount();
             }
             writeValue(out, elem, anyValue.getElemType());
@@ -580,6 +702,9 @@ public class BinaryEncoder {
             Object arrayValue = value;
             int len = Array.getLength(arrayValue);
             BinaryUtil.encodeUint(out, len);
+            if (writePrimitiveArray(out, arrayValue, type.getElem())) {
+                return len != 0;
+            }
             for (int i = 0; i < len; i++) {
                 writeValue(out, Array.get(arrayValue, i), type.getElem());
             }
@@ -590,6 +715,66 @@ public class BinaryEncoder {
         }
     }
 
+    /**
+     * Writes the elements of a primitive Java array of bools, integers or floating point numbers
+     * without boxing them.  Returns false without writing anything if the array doesn't hold
+     * values of the provided element type, in which case the caller falls back to writing the
+     * elements one by one.
+     */
+    private boolean writePrimitiveArray(EncodingStream out, Object array, VdlType elemType)
+            throws IOException {
+        switch (elemType.getKind()) {
+            case INT16:
+            case INT32:
+            case INT64:
+                if (array instanceof long[]) {
+                    for (long elem : (long[]) array) {
+                        BinaryUtil.encodeInt(out, elem);
+                    }
+                    return true;
+                } else if (array instanceof int[]) {
+                    for (int elem : (int[]) array) {
+                        BinaryUtil.encodeInt(out, elem);
+                    }
+                    return true;
+                } else if (array instanceof short[]) {
+                    for (short elem : (short[]) array) {
+                        BinaryUtil.encodeInt(out, elem);
+                    }
+                    return true;
+                }
+                return false;
+            case FLOAT32:
+            case FLOAT64:
+                if (array instanceof double[]) {
+                    for (double elem : (double[]) array) {
+                        BinaryUtil.encodeDouble(out, elem);
+                    }
+                    return true;
+                } else if (array instanceof float[]) {
+                    for (float elem : (float[]) array) {
+                        BinaryUtil.encodeDouble(out, elem);
+                    }
+                    return true;
+                }
+                return false;
+            case BOOL:
+                if (array instanceof boolean[]) {
+                    for (boolean elem : (boolean[]) array) {
+                        if (version == Constants.VERSION_80) {
+                            out.write(elem ? 1 : 0);
+                        } else {
+                            BinaryUtil.encodeUint(out, elem ? 1 : 0);
+                        }
+                    }
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
     /**
      * Writes a VDL map to output stream and returns true iff the value is non-zero.
      */
@@ -660,7 +845,9 @@ public class BinaryEncoder {
             throw new IOException("Unsupported VDL string value (type " + value.getClass()
                     + ", value " + value + ")");
         }
-        BinaryUtil.encodeBytes(out, BinaryUtil.getBytes(stringValue));
+        if (!out.writeAsciiString(stringValue)) {
+            BinaryUtil.encodeBytes(out, BinaryUtil.getBytes(stringValue));
+        }
         return stringValue.length() != 0;
     }
 
@@ -669,6 +856,8 @@ public class BinaryEncoder {
      */
     private boolean writeVdlStruct(EncodingStream out, Object value, VdlType type) throws IOException {
         List<VdlField> fields = type.getFields();
+        StructCodec codec = StructCodec.forClass(value.getClass());
+        Field[] accessors = codec != null ? codec.fields(type) : null;
         boolean hasNonZeroField = false;
         for (int i = 0; i < fields.size(); i++) {
             VdlField field = fields.get(i);
@@ -677,10 +866,7 @@ public class BinaryEncoder {
                 fieldValue = ((VdlStruct) value).getField(field.getName());
             } else {
                 try {
-                    Field f = value.getClass().getDeclaredField(
-                            BinaryUtil.firstCharToLower(field.getName()));
-                    f.setAccessible(true);
-                    fieldValue = f.get(value);
+                    fieldValue = accessors[i].get(value);
                 } catch (Exception e) {
                     throw new IOException("Unsupported VDL struct value (type " + value.getClass()
                             + ", value " + value + ")", e);
@@ -694,9 +880,7 @@ public class BinaryEncoder {
             } else {
                 // Roll back writing of a zero value.
                 out.setCount(prevCount);
-                for (;typeIds.size() > prevTypeIdCount;) {
-                    typeIds.remove(typeIds.size() - 1);
-                }
+                typeIds.truncate(prevTypeIdCount);
             }
         }
         writeVdlControlByte(out, Constants.WIRE_CTRL_END);
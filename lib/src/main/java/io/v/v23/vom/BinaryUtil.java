@@ -28,6 +28,9 @@ public final class BinaryUtil {
      * Returns true iff the value is non-zero.
      */
     public static boolean encodeUint(OutputStream out, final long value) throws IOException {
+        if (out instanceof EncodingStream) {
+            return ((EncodingStream) out).writeUint(value);
+        }
         if ((value & 0x7f) == value) {
             out.write((byte) value);
             return value != 0;
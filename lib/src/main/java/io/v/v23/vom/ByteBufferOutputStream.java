@@ -0,0 +1,40 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.v23.vom;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An output stream that writes directly into a (heap or direct) {@link ByteBuffer}, advancing the
+ * buffer's position as bytes are written.  Writing past the buffer's limit fails with an
+ * {@link IOException}.
+ */
+class ByteBufferOutputStream extends OutputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferOutputStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            throw new IOException("Buffer overflow: no room left in the output buffer");
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (buffer.remaining() < len) {
+            throw new IOException(String.format(
+                    "Buffer overflow: need %d bytes, only %d left in the output buffer",
+                    len, buffer.remaining()));
+        }
+        buffer.put(b, off, len);
+    }
+}
@@ -0,0 +1,123 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.v23.vom;
+
+import io.v.v23.vdl.NativeTypes;
+import io.v.v23.vdl.Types;
+import io.v.v23.vdl.VdlType;
+import io.v.v23.vdl.VdlValue;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * ConversionPlan holds everything the decoder derives about decoding values of a given wire
+ * type into a given Java type: the {@link ConversionTarget}, the native type converter (if any)
+ * and whether the two types are compatible.
+ * <p>
+ * Plans are immutable and cached per (wire type, Java type) pair, so decoding many values of the
+ * same types doesn't repeat type look-ups and compatibility checks for every value.  VDL types
+ * are unique, so the cache is keyed on their identity.
+ */
+final class ConversionPlan {
+    private static final ConcurrentMap<VdlType, ConcurrentMap<Type, ConversionPlan>> plans =
+            new ConcurrentHashMap<VdlType, ConcurrentMap<Type, ConversionPlan>>();
+    private static final ConcurrentMap<Type, ConversionTarget> targets =
+            new ConcurrentHashMap<Type, ConversionTarget>();
+
+    private final VdlType actualType;
+    private final Type targetType;
+    private final ConversionTarget target;
+    private final NativeTypes.Converter converter;
+    private volatile Boolean compatible;
+
+    /**
+     * Returns the plan for decoding values of the provided wire type into the provided Java type.
+     * If the Java type is {@code Object}, the values are decoded into the Java type registered for
+     * the wire type, falling back to {@link VdlValue}; if it is {@link VdlValue}, the values are
+     * decoded into the generic {@link VdlValue} representation of the wire type.
+     *
+     * @throws IllegalArgumentException if the Java type has no VDL representation
+     */
+    static ConversionPlan get(VdlType actualType, Type targetType) {
+        ConcurrentMap<Type, ConversionPlan> byTarget = plans.get(actualType);
+        if (byTarget == null) {
+            byTarget = new ConcurrentHashMap<Type, ConversionPlan>();
+            ConcurrentMap<Type, ConversionPlan> existing = plans.putIfAbsent(actualType, byTarget);
+            if (existing != null) {
+                byTarget = existing;
+            }
+        }
+        ConversionPlan plan = byTarget.get(targetType);
+        if (plan == null) {
+            plan = new ConversionPlan(actualType, targetType);
+            byTarget.putIfAbsent(targetType, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Returns the (cached) conversion target for the provided Java type.
+     *
+     * @throws IllegalArgumentException if the Java type has no VDL representation
+     */
+    static ConversionTarget target(Type targetType) {
+        ConversionTarget target = targets.get(targetType);
+        if (target == null) {
+            target = new ConversionTarget(targetType);
+            targets.putIfAbsent(targetType, target);
+        }
+        return target;
+    }
+
+    private ConversionPlan(VdlType actualType, Type targetType) {
+        this.actualType = actualType;
+        this.targetType = targetType;
+        if (targetType == VdlValue.class) {
+            this.target = new ConversionTarget(actualType);
+        } else if (targetType == Object.class) {
+            ConversionTarget target;
+            try {
+                target = new ConversionTarget(Types.getReflectTypeForVdl(actualType), actualType);
+            } catch (IllegalArgumentException e) {
+                target = new ConversionTarget(actualType);
+            }
+            this.target = target;
+        } else {
+            this.target = target(targetType);
+        }
+        this.converter = Types.getNativeTypeConverter(target.getTargetType());
+    }
+
+    /**
+     * Returns the target that values should be converted into.
+     */
+    ConversionTarget getTarget() {
+        return target;
+    }
+
+    /**
+     * Returns the converter for the target type if it is a native type, or {@code null}
+     * otherwise.
+     */
+    NativeTypes.Converter getConverter() {
+        return converter;
+    }
+
+    /**
+     * Returns true iff the wire type is compatible with the requested Java type.  Values can
+     * always be decoded into {@code Object} and {@link VdlValue}.
+     */
+    boolean isCompatible() {
+        Boolean result = compatible;
+        if (result == null) {
+            result = targetType == Object.class || targetType == VdlValue.class
+                    || TypeCompatibility.compatible(actualType, target.getVdlType());
+            compatible = result;
+        }
+        return result;
+    }
+}
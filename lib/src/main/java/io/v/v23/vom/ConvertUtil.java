@@ -259,7 +259,7 @@ final class ConvertUtil {
         if (elemType == VdlValue.class) {
             elemType = VdlByte.class;
         }
-        ConversionTarget element = new ConversionTarget(elemType);
+        ConversionTarget element = ConversionPlan.target(elemType);
         if (targetClass.isArray() || VdlArray.class.isAssignableFrom(targetClass)) {
             Object data = Array.newInstance(element.getTargetClass(), len);
             for (int i = 0; i < bytes.length; i++) {
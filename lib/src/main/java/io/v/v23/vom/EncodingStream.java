@@ -5,9 +5,13 @@
 package io.v.v23.vom;
 
 import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
 
 /**
  * A stream to encode VDL values. Can discard a suffix of accumulated output.
+ * <p>
+ * Unlike the other {@link ByteArrayOutputStream} methods, the methods that write VOM unsigned
+ * integers write directly into the backing array and aren't synchronized.
  */
 class EncodingStream extends ByteArrayOutputStream {
     int getCount() {
@@ -17,4 +21,53 @@ class EncodingStream extends ByteArrayOutputStream {
     void setCount(int count) {
         this.count = count;
     }
+
+    int capacity() {
+        return buf.length;
+    }
+
+    /**
+     * Writes an unsigned integer in the format described in
+     * {@link BinaryUtil#encodeUint(java.io.OutputStream, long)} and returns true iff the value is
+     * non-zero.
+     */
+    boolean writeUint(long value) {
+        if ((value & 0x7f) == value) {
+            ensureCapacity(count + 1);
+            buf[count++] = (byte) value;
+            return value != 0;
+        }
+        int len = 8 - Long.numberOfLeadingZeros(value) / 8;
+        ensureCapacity(count + len + 1);
+        buf[count++] = (byte) -len;
+        for (int shift = (len - 1) * 8; shift >= 0; shift -= 8) {
+            buf[count++] = (byte) (value >>> shift);
+        }
+        return true;
+    }
+
+    /**
+     * Writes an ASCII string as a VOM byte count followed by its bytes and returns true, or
+     * writes nothing and returns false if the string contains any non-ASCII characters.
+     */
+    boolean writeAsciiString(String value) {
+        int len = value.length();
+        for (int i = 0; i < len; i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        writeUint(len);
+        ensureCapacity(count + len);
+        for (int i = 0; i < len; i++) {
+            buf[count++] = (byte) value.charAt(i);
+        }
+        return true;
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, minCapacity));
+        }
+    }
 }
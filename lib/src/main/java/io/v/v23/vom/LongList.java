@@ -0,0 +1,67 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.v23.vom;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of unboxed {@code long} values.  Used by the encoder to collect the type ids
+ * and any-lengths of a message without boxing them.
+ */
+final class LongList {
+    private long[] values = new long[8];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    long get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of range 0.." + size);
+        }
+        return values[index];
+    }
+
+    void set(int index, long value) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of range 0.." + size);
+        }
+        values[index] = value;
+    }
+
+    void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Returns the index of the first occurrence of the value, or -1 if the list doesn't contain
+     * the value.
+     */
+    int indexOf(long value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Removes all values at positions {@code size} and above.
+     */
+    void truncate(int size) {
+        if (size < this.size) {
+            this.size = size;
+        }
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
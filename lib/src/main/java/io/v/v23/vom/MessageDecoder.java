@@ -0,0 +1,63 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.v23.vom;
+
+import io.v.v23.verror.VException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * MessageDecoder VOM-decodes a sequence of standalone VOM messages, typically the items of a
+ * single stream.
+ * <p>
+ * Each message must be self-contained, i.e., decodable by {@link VomUtil#decode}.  The decoder
+ * remembers the header (the version byte and the type definitions) of the last decoded message:
+ * if the next message starts with the same header, the types decoded for the previous message
+ * are reused and only the value is decoded.  Other headers are looked up in the process-wide
+ * {@link WireTypeCache}.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class MessageDecoder {
+    private WireTypeCache.Header lastHeader;
+
+    /**
+     * VOM-decodes the provided standalone VOM message.
+     *
+     * @param  data            VOM-encoded data
+     * @param  type            type of the object that the data should be decoded into
+     * @return                 VOM-decoded object
+     * @throws VException      if there was an error decoding the data
+     */
+    public synchronized Object decode(byte[] data, Type type) throws VException {
+        try {
+            if (lastHeader == null || !startsWith(data, lastHeader.getBytes())) {
+                lastHeader = WireTypeCache.getHeader(data);
+            }
+            return lastHeader.decodeValue(data, type, null);
+        } catch (IOException e) {
+            VException ve = new VException(e.getMessage());
+            ve.initCause(e);
+            throw ve;
+        } catch (ConversionException e) {
+            VException ve = new VException(e.getMessage());
+            ve.initCause(e);
+            throw ve;
+        }
+    }
+
+    private static boolean startsWith(byte[] data, byte[] prefix) {
+        if (data.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,121 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.v23.vom;
+
+import io.v.v23.vdl.Types;
+import io.v.v23.vdl.VdlType;
+import io.v.v23.verror.VException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * MessageEncoder VOM-encodes a sequence of values, typically the items of a single stream, into
+ * standalone VOM messages.
+ * <p>
+ * Each returned message is self-contained and can be decoded with {@link VomUtil#decode}.
+ * Unlike {@link VomUtil#encode}, the encoder remembers the encoded type definitions of the
+ * values it has seen, so a value whose type was already encoded only costs encoding the value
+ * itself.  Values whose types contain {@code any} or {@code typeobject} need per-value type
+ * definitions and are always encoded from scratch.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class MessageEncoder {
+    private final Version version;
+    private final Map<VdlType, TypeEntry> types;
+
+    /**
+     * Creates a new {@link MessageEncoder} that uses the default VOM version.
+     */
+    public MessageEncoder() {
+        this(Constants.DEFAULT_VERSION);
+    }
+
+    /**
+     * Creates a new {@link MessageEncoder} that uses the provided VOM version.
+     */
+    public MessageEncoder(Version version) {
+        this.version = version;
+        this.types = new HashMap<VdlType, TypeEntry>();
+    }
+
+    /**
+     * VOM-encodes the provided value into a standalone VOM message.
+     *
+     * @param  value           value to be encoded
+     * @param  type            type of the provided value
+     * @return                 VOM-encoded value as a byte array
+     * @throws VException      if there was an error encoding the value
+     */
+    public byte[] encode(Object value, Type type) throws VException {
+        return encode(value, Types.getVdlTypeFromReflect(type));
+    }
+
+    /**
+     * VOM-encodes the provided value into a standalone VOM message.
+     *
+     * @param  value           value to be encoded
+     * @param  type            type of the provided value
+     * @return                 VOM-encoded value as a byte array
+     * @throws VException      if there was an error encoding the value
+     */
+    public synchronized byte[] encode(Object value, VdlType type) throws VException {
+        try {
+            TypeEntry entry = types.get(type);
+            if (entry == null) {
+                entry = new TypeEntry(type);
+                types.put(type, entry);
+            }
+            if (entry.encoder == null) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                new BinaryEncoder(out, version).encodeValue(type, value);
+                return out.toByteArray();
+            }
+            try {
+                return entry.encode(value);
+            } catch (IOException e) {
+                // The encoder may be left in an inconsistent state: start afresh next time.
+                types.remove(type);
+                throw e;
+            }
+        } catch (IOException e) {
+            VException ve = new VException(e.getMessage());
+            ve.initCause(e);
+            throw ve;
+        }
+    }
+
+    private final class TypeEntry {
+        private final VdlType type;
+        private final EncodingStream out;
+        private final BinaryEncoder encoder;
+        private final int headerLength;
+
+        private TypeEntry(VdlType type) throws IOException {
+            this.type = type;
+            if (BinaryUtil.hasAny(type) || BinaryUtil.hasTypeObject(type)) {
+                this.out = null;
+                this.encoder = null;
+                this.headerLength = 0;
+                return;
+            }
+            this.out = new EncodingStream();
+            this.encoder = new BinaryEncoder(out, version);
+            encoder.encodeType(type);
+            this.headerLength = out.getCount();
+        }
+
+        private byte[] encode(Object value) throws IOException {
+            // Keep the version byte and the type definitions, discard the previous value.
+            out.setCount(headerLength);
+            encoder.encodeValue(type, value);
+            return out.toByteArray();
+        }
+    }
+}
@@ -17,16 +17,30 @@ import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * ReflectUtil provides helpers to get object properties and create class instances from reflection.
  */
 final class ReflectUtil {
+    // Reflective look-ups are comparatively expensive, so the constructors and factory methods
+    // used to create values are looked up once per class.
+    private static final ConcurrentMap<Class<?>, Constructor<?>> valueConstructors =
+            new ConcurrentHashMap<Class<?>, Constructor<?>>();
+    private static final ConcurrentMap<Class<?>, Constructor<?>> genericConstructors =
+            new ConcurrentHashMap<Class<?>, Constructor<?>>();
+    private static final ConcurrentMap<Class<?>, Constructor<?>> structConstructors =
+            new ConcurrentHashMap<Class<?>, Constructor<?>>();
+    private static final ConcurrentMap<Class<?>, Method> enumFactories =
+            new ConcurrentHashMap<Class<?>, Method>();
+
     /**
      * Creates an instance of java primitives, one of boolean, byte, short, int, long, float,
      * double, String. Handles java types and VDL types.
@@ -42,10 +56,11 @@ final class ReflectUtil {
         Class<?> targetClass = target.getTargetClass();
         try {
             if (targetClass.getSuperclass() == VdlValue.class) {
-                return targetClass.getConstructor(VdlType.class, valueType)
+                return getConstructor(valueConstructors, targetClass, VdlType.class, valueType)
                         .newInstance(target.getVdlType(), value);
             } else if (VdlValue.class.isAssignableFrom(targetClass)) {
-                return targetClass.getConstructor(valueType).newInstance(value);
+                return getConstructor(valueConstructors, targetClass, valueType)
+                        .newInstance(value);
             } else {
                 return value;
             }
@@ -63,8 +78,12 @@ final class ReflectUtil {
             return new VdlEnum(target.getVdlType(), label);
         }
         try {
-            return (VdlEnum) targetClass.getMethod("valueOf", String.class)
-                    .invoke(null, label);
+            Method valueOf = enumFactories.get(targetClass);
+            if (valueOf == null) {
+                valueOf = targetClass.getMethod("valueOf", String.class);
+                enumFactories.putIfAbsent(targetClass, valueOf);
+            }
+            return (VdlEnum) valueOf.invoke(null, label);
         } catch (Exception e) {
             throw new ConversionException(label, targetClass, e);
         }
@@ -92,9 +111,23 @@ final class ReflectUtil {
             Class<?> targetClass, Class<?> ctorParamType, Object... ctorArgs)
             throws NoSuchMethodException, IllegalAccessException, InvocationTargetException,
                    InstantiationException {
-        Constructor<?> ctor = targetClass.getConstructor(ctorParamType);
-        ctor.setAccessible(true);
-        return ctor.newInstance(ctorArgs);
+        return getConstructor(genericConstructors, targetClass, ctorParamType)
+                .newInstance(ctorArgs);
+    }
+
+    /**
+     * Returns the (cached) public constructor of the provided class with the given parameter
+     * types.  Each cache must only ever be used with a single signature per class.
+     */
+    private static Constructor<?> getConstructor(ConcurrentMap<Class<?>, Constructor<?>> cache,
+            Class<?> klass, Class<?>... paramTypes) throws NoSuchMethodException {
+        Constructor<?> ctor = cache.get(klass);
+        if (ctor == null) {
+            ctor = klass.getConstructor(paramTypes);
+            ctor.setAccessible(true);
+            cache.putIfAbsent(klass, ctor);
+        }
+        return ctor;
     }
 
     /**
@@ -135,9 +168,7 @@ final class ReflectUtil {
             return new VdlStruct(target.getVdlType());
         }
         try {
-            Constructor<?> ctor = targetClass.getConstructor();
-            ctor.setAccessible(true);
-            return ctor.newInstance();
+            return getConstructor(structConstructors, targetClass).newInstance();
         } catch (Exception e) {
             throw new ConversionException(target.getVdlType(), targetClass, e);
         }
@@ -0,0 +1,116 @@
+// Copyright 2015 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.v23.vom;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import io.v.v23.vdl.GeneratedFromVdl;
+import io.v.v23.vdl.VdlField;
+import io.v.v23.vdl.VdlStruct;
+import io.v.v23.vdl.VdlType;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * StructCodec holds precomputed field accessors for a Java class that represents a VDL struct.
+ * <p>
+ * Codecs are built once per class and cached, so that encoding and decoding of struct values
+ * doesn't repeat field look-ups and {@code setAccessible} calls for every value.  Field
+ * resolution follows the same rules as the reflective path: a VDL field {@code Name} maps to
+ * the declared Java field {@code name}, or failing that to a field annotated with
+ * {@link GeneratedFromVdl @GeneratedFromVdl(name = "Name")}.
+ */
+final class StructCodec {
+    // The classes are weakly referenced, so that the cache doesn't keep them (and their class
+    // loaders) alive, and the codecs softly, since a codec references the fields of its class.
+    private static final ConcurrentMap<Class<?>, StructCodec> codecs =
+            CacheBuilder.newBuilder().weakKeys().softValues().<Class<?>, StructCodec>build()
+                    .asMap();
+
+    private final Class<?> klass;
+    private final ConcurrentMap<String, Optional<Field>> fieldsByName;
+    private final ConcurrentMap<VdlType, Field[]> fieldsByType;
+
+    /**
+     * Returns the codec for the provided class, or {@code null} if values of the class have no
+     * fixed set of Java fields (i.e., the class is {@link VdlStruct}).
+     */
+    static StructCodec forClass(Class<?> klass) {
+        if (VdlStruct.class.isAssignableFrom(klass)) {
+            return null;
+        }
+        StructCodec codec = codecs.get(klass);
+        if (codec == null) {
+            // Multiple threads might build a codec for the same class; that's just wasted work.
+            codec = new StructCodec(klass);
+            StructCodec existing = codecs.putIfAbsent(klass, codec);
+            if (existing != null) {
+                codec = existing;
+            }
+        }
+        return codec;
+    }
+
+    private StructCodec(Class<?> klass) {
+        this.klass = klass;
+        this.fieldsByName = new ConcurrentHashMap<String, Optional<Field>>();
+        this.fieldsByType = new ConcurrentHashMap<VdlType, Field[]>();
+    }
+
+    /**
+     * Returns the Java field corresponding to the VDL field with the given name, or {@code null}
+     * if the class has no such field.  The returned field is accessible.
+     */
+    Field field(String name) {
+        Optional<Field> field = fieldsByName.get(name);
+        if (field == null) {
+            field = lookupField(name);
+            fieldsByName.put(name, field);
+        }
+        return field.orNull();
+    }
+
+    /**
+     * Returns the Java fields corresponding to fields of the provided VDL struct type, indexed
+     * by the VDL field index.  Entries for fields that the class doesn't have are {@code null}.
+     */
+    Field[] fields(VdlType type) {
+        Field[] fields = fieldsByType.get(type);
+        if (fields == null) {
+            List<VdlField> vdlFields = type.getFields();
+            fields = new Field[vdlFields.size()];
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = field(vdlFields.get(i).getName());
+            }
+            fieldsByType.put(type, fields);
+        }
+        return fields;
+    }
+
+    private Optional<Field> lookupField(String name) {
+        Field result = null;
+        try {
+            result = klass.getDeclaredField(BinaryUtil.firstCharToLower(name));
+        } catch (NoSuchFieldException e) {
+            // OK, we'll try to look at annotations.
+        }
+        if (result == null) {
+            for (Field field : klass.getDeclaredFields()) {
+                GeneratedFromVdl annotation = field.getAnnotation(GeneratedFromVdl.class);
+                if (annotation != null && annotation.name().equals(name)) {
+                    result = field;
+                    break;
+                }
+            }
+        }
+        if (result != null) {
+            result.setAccessible(true);
+        }
+        return Optional.fromNullable(result);
+    }
+}
@@ -0,0 +1,111 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.v23.vom;
+
+import io.v.v23.vdl.VdlField;
+import io.v.v23.vdl.VdlType;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * UnionCodec holds the precomputed constructors of the nested field classes of a Java class
+ * generated from a VDL union.
+ * <p>
+ * Codecs are built once per class and cached; the field classes are resolved once per VDL union
+ * type, so that decoding a union value is an array look-up by the field index.  A VDL field
+ * {@code Name} of union {@code U} maps to the nested class {@code U.Name}.
+ */
+final class UnionCodec {
+    private static final ConcurrentMap<Class<?>, UnionCodec> codecs =
+            new ConcurrentHashMap<Class<?>, UnionCodec>();
+
+    /**
+     * A field class of a union, which wraps a single value of the field type.
+     */
+    static final class FieldClass {
+        private final Constructor<?> constructor;
+        private final Type elemType;
+
+        private FieldClass(Constructor<?> constructor, Type elemType) {
+            this.constructor = constructor;
+            this.elemType = elemType;
+        }
+
+        /**
+         * Returns the constructor that creates a union value from a field value.
+         */
+        Constructor<?> getConstructor() {
+            return constructor;
+        }
+
+        /**
+         * Returns the Java type of the field value.
+         */
+        Type getElemType() {
+            return elemType;
+        }
+    }
+
+    private final Class<?> klass;
+    private final ConcurrentMap<VdlType, FieldClass[]> fieldsByType;
+
+    /**
+     * Returns the codec for the provided union class.
+     */
+    static UnionCodec forClass(Class<?> klass) {
+        UnionCodec codec = codecs.get(klass);
+        if (codec == null) {
+            codec = new UnionCodec(klass);
+            UnionCodec existing = codecs.putIfAbsent(klass, codec);
+            if (existing != null) {
+                codec = existing;
+            }
+        }
+        return codec;
+    }
+
+    private UnionCodec(Class<?> klass) {
+        this.klass = klass;
+        this.fieldsByType = new ConcurrentHashMap<VdlType, FieldClass[]>();
+    }
+
+    /**
+     * Returns the field classes corresponding to the fields of the provided VDL union type,
+     * indexed by the VDL field index.  Entries for fields that the class doesn't have are
+     * {@code null}.
+     */
+    FieldClass[] fields(VdlType type) {
+        FieldClass[] fields = fieldsByType.get(type);
+        if (fields == null) {
+            List<VdlField> vdlFields = type.getFields();
+            fields = new FieldClass[vdlFields.size()];
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = lookupField(vdlFields.get(i).getName());
+            }
+            fieldsByType.put(type, fields);
+        }
+        return fields;
+    }
+
+    private FieldClass lookupField(String name) {
+        for (Class<?> fieldClass : klass.getDeclaredClasses()) {
+            if (fieldClass.getName().equals(klass.getName() + "$" + name)) {
+                try {
+                    Type elemType = fieldClass.getDeclaredField("elem").getGenericType();
+                    return new FieldClass(
+                            fieldClass.getConstructor(ReflectUtil.getRawClass(elemType)),
+                            elemType);
+                } catch (Exception e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -4,14 +4,15 @@
 
 package io.v.v23.vom;
 
+import io.v.v23.vdl.Types;
 import io.v.v23.vdl.VdlType;
 import io.v.v23.vdl.VdlValue;
 import io.v.v23.verror.VException;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.Set;
 
 /**
  * VomUtil contains convenience methods for VOM-encoding/decoding.
@@ -26,37 +27,70 @@ public class VomUtil {
      * @throws VException      if there was an error encoding the value
      */
     public static byte[] encode(Object value, Type type) throws VException {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        BinaryEncoder encoder = new BinaryEncoder(out);
+        return encode(value, Types.getVdlTypeFromReflect(type));
+    }
+
+    /**
+     * VOM-encodes the provided value using a new VOM-encoder.
+     *
+     * @param  value           value to be encoded
+     * @param  type            type of the provided value
+     * @return                 VOM-encoded value as a byte array
+     * @throws VException      if there was an error encoding the value
+     */
+    public static byte[] encode(Object value, VdlType type) throws VException {
         try {
-            encoder.encodeValue(type, value);
+            return BinaryEncoder.encodeMessage(type, value);
         } catch (IOException e) {
             VException ve = new VException(e.getMessage());
             ve.initCause(e);
             throw ve;
         }
-        return out.toByteArray();
     }
 
     /**
-     * VOM-encodes the provided value using a new VOM-encoder.
+     * VOM-encodes the provided value using a new VOM-encoder, writing the result directly into
+     * the provided (heap or direct) buffer, starting at its current position.  On success, the
+     * buffer's position is advanced past the encoded value.
      *
      * @param  value           value to be encoded
      * @param  type            type of the provided value
-     * @return                 VOM-encoded value as a byte array
-     * @throws VException      if there was an error encoding the value
+     * @param  out             buffer the value is written into
+     * @throws VException      if there was an error encoding the value, or if the buffer
+     *                         doesn't have enough room for the encoded value
      */
-    public static byte[] encode(Object value, VdlType type) throws VException {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
+    public static void encode(Object value, Type type, ByteBuffer out) throws VException {
+        encode(value, Types.getVdlTypeFromReflect(type), out);
+    }
+
+    /**
+     * VOM-encodes the provided value using a new VOM-encoder, writing the result directly into
+     * the provided (heap or direct) buffer, starting at its current position.  On success, the
+     * buffer's position is advanced past the encoded value; on failure, the position is left
+     * unchanged, though the bytes after it may have been overwritten.
+     *
+     * @param  value           value to be encoded
+     * @param  type            type of the provided value
+     * @param  out             buffer the value is written into
+     * @throws VException      if there was an error encoding the value, or if the buffer
+     *                         doesn't have enough room for the encoded value
+     */
+    public static void encode(Object value, VdlType type, ByteBuffer out) throws VException {
+        int start = out.position();
+        boolean encoded = false;
         BinaryEncoder encoder = new BinaryEncoder(out);
         try {
             encoder.encodeValue(type, value);
+            encoded = true;
         } catch (IOException e) {
             VException ve = new VException(e.getMessage());
             ve.initCause(e);
             throw ve;
+        } finally {
+            if (!encoded) {
+                out.position(start);
+            }
         }
-        return out.toByteArray();
     }
 
     /**
@@ -80,30 +114,47 @@ public class VomUtil {
      * @throws VException      if there was an error encoding the value
      */
     public static byte[] encode(VdlValue value) throws VException {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        BinaryEncoder encoder = new BinaryEncoder(out);
+        return encode(value, value.vdlType());
+    }
+
+    /**
+     * VOM-decodes the provided data using a new VOM-decoder.
+     *
+     * @param  data            VOM-encoded data
+     * @param  type            type of the object that the data should be decoded into
+     * @return                 VOM-decoded object
+     * @throws VException      if there was an error decoding the data
+     */
+    public static Object decode(byte[] data, Type type) throws VException {
         try {
-            encoder.encodeValue(value);
+            return WireTypeCache.getHeader(data).decodeValue(data, type, null);
         } catch (IOException e) {
             VException ve = new VException(e.getMessage());
             ve.initCause(e);
             throw ve;
+        } catch (ConversionException e) {
+            VException ve = new VException(e.getMessage());
+            ve.initCause(e);
+            throw ve;
         }
-        return out.toByteArray();
     }
 
     /**
-     * VOM-decodes the provided data using a new VOM-decoder.
+     * VOM-decodes the provided data using a new VOM-decoder, decoding only the provided fields
+     * if the encoded value is a struct.  The remaining fields are skipped without being
+     * materialized, which is considerably cheaper for wide structs when only a few fields are
+     * needed.
      *
      * @param  data            VOM-encoded data
      * @param  type            type of the object that the data should be decoded into
+     * @param  fields          names of the struct fields to decode
      * @return                 VOM-decoded object
      * @throws VException      if there was an error decoding the data
+     * @see BinaryDecoder#decodeValue(Type, Set)
      */
-    public static Object decode(byte[] data, Type type) throws VException {
-        BinaryDecoder decoder = new BinaryDecoder(new ByteArrayInputStream(data));
+    public static Object decode(byte[] data, Type type, Set<String> fields) throws VException {
         try {
-            return decoder.decodeValue(type);
+            return WireTypeCache.getHeader(data).decodeValue(data, type, fields);
         } catch (IOException e) {
             VException ve = new VException(e.getMessage());
             ve.initCause(e);
@@ -124,9 +175,34 @@ public class VomUtil {
      * @throws VException      if there was an error decoding the data
      */
     public static Object decode(byte[] data) throws VException {
-        BinaryDecoder decoder = new BinaryDecoder(new ByteArrayInputStream(data));
         try {
-            return decoder.decodeValue();
+            return WireTypeCache.getHeader(data).decodeValue(data, Object.class, null);
+        } catch (IOException e) {
+            VException ve = new VException(e.getMessage());
+            ve.initCause(e);
+            throw ve;
+        } catch (ConversionException e) {
+            VException ve = new VException(e.getMessage());
+            ve.initCause(e);
+            throw ve;
+        }
+    }
+
+    /**
+     * VOM-decodes a value from the provided (heap or direct) buffer using a new VOM-decoder,
+     * starting at the buffer's current position.  The bytes are read straight from the buffer,
+     * without copying its contents into an intermediate array.  On success, the buffer's
+     * position is advanced past the decoded value.
+     *
+     * @param  data            buffer holding VOM-encoded data
+     * @param  type            type of the object that the data should be decoded into
+     * @return                 VOM-decoded object
+     * @throws VException      if there was an error decoding the data
+     */
+    public static Object decode(ByteBuffer data, Type type) throws VException {
+        BinaryDecoder decoder = new BinaryDecoder(data);
+        try {
+            return decoder.decodeValue(type);
         } catch (IOException e) {
             VException ve = new VException(e.getMessage());
             ve.initCause(e);
@@ -138,6 +214,18 @@ public class VomUtil {
         }
     }
 
+    /**
+     * VOM-decodes a value from the provided (heap or direct) buffer using a new VOM-decoder.
+     * A best effort is made to deduce the type of the encoded data.
+     *
+     * @param  data            buffer holding VOM-encoded data
+     * @return                 VOM-decoded object
+     * @throws VException      if there was an error decoding the data
+     */
+    public static Object decode(ByteBuffer data) throws VException {
+        return decode(data, Object.class);
+    }
+
     /**
      * VOM-decodes the provided data (stored as a hex string) using a new VOM-decoder.
      *
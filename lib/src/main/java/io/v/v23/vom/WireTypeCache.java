@@ -0,0 +1,133 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.v23.vom;
+
+import io.v.v23.vdl.VdlType;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * WireTypeCache is a process-wide cache of the types defined in the headers of standalone VOM
+ * messages.
+ * <p>
+ * The header of a standalone message consists of the version byte, the wire type definitions
+ * and the type id of the value.  Peers send the same header for every message of the same
+ * type, so the {@link VdlType}s built from a header are cached, keyed on the header bytes.
+ * Decoding a message whose header is cached skips the decoding of the wire types and the
+ * building of the VDL types, and only decodes the value.  Since the cached types are the
+ * (unique) VDL types, per-type caches such as the struct field mappings in {@link StructCodec}
+ * are hit as well, even when the peer uses a different version of the type than the receiver.
+ */
+final class WireTypeCache {
+    private static final int MAX_HEADER_SIZE = 16 * 1024;
+    private static final int MAX_HEADERS = 1024;
+
+    private static final ConcurrentMap<ByteBuffer, Header> headers =
+            new ConcurrentHashMap<ByteBuffer, Header>();
+
+    /**
+     * The decoded header of a standalone VOM message.
+     */
+    static final class Header {
+        private final byte[] bytes;
+        private final BinaryDecoder decoder;
+        private final VdlType type;
+
+        private Header(byte[] bytes, BinaryDecoder decoder, VdlType type) {
+            this.bytes = bytes;
+            // Don't hold on to the stream the header was decoded from.
+            this.decoder = new BinaryDecoder(new ByteArrayInputStream(new byte[0]), decoder);
+            this.type = type;
+        }
+
+        /**
+         * Returns the header bytes.
+         */
+        byte[] getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Decodes the value of the provided message, which must start with this header.
+         */
+        Object decodeValue(byte[] data, Type targetType, Set<String> fields)
+                throws IOException, ConversionException {
+            BinaryDecoder valueDecoder = new BinaryDecoder(new ByteArrayInputStream(
+                    data, bytes.length, data.length - bytes.length), decoder);
+            return valueDecoder.decodeValueMessage(type, targetType, fields);
+        }
+    }
+
+    /**
+     * Returns the decoded header of the provided standalone VOM message, decoding and caching
+     * it if it isn't cached yet.
+     */
+    static Header getHeader(byte[] data) throws IOException, ConversionException {
+        int length = headerLength(data);
+        if (length > 0) {
+            Header header = headers.get(ByteBuffer.wrap(data, 0, length));
+            if (header != null) {
+                return header;
+            }
+        }
+        ByteArrayInputStream in = new ByteArrayInputStream(data);
+        BinaryDecoder decoder = new BinaryDecoder(in);
+        VdlType type = decoder.decodeHeader();
+        // Build all types up-front: the types of a cached header are never modified, so that
+        // the header can be shared by concurrent decoders.
+        decoder.resolveTypes();
+        Header header = new Header(
+                Arrays.copyOf(data, data.length - in.available()), decoder, type);
+        if (header.bytes.length <= MAX_HEADER_SIZE) {
+            if (headers.size() >= MAX_HEADERS) {
+                headers.clear();
+            }
+            headers.put(ByteBuffer.wrap(header.bytes), header);
+        }
+        return header;
+    }
+
+    /**
+     * Returns the length of the header of the provided message, or -1 if the message is
+     * malformed.  Wire type definitions are skipped over without being decoded.
+     */
+    private static int headerLength(byte[] data) {
+        ByteArrayInputStream in = new ByteArrayInputStream(data);
+        try {
+            if (in.read() == -1) {
+                return -1;
+            }
+            while (true) {
+                in.mark(1);
+                if ((byte) in.read() != Constants.WIRE_CTRL_TYPE_INCOMPLETE) {
+                    in.reset();
+                }
+                long typeId = BinaryUtil.decodeInt(in);
+                if (typeId > 0) {
+                    return data.length - in.available();
+                } else if (typeId == 0) {
+                    return -1;
+                }
+                long len = BinaryUtil.decodeUint(in);
+                if (len < 0 || len > in.available()) {
+                    return -1;
+                }
+                in.skip(len);
+            }
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private WireTypeCache() {
+    }
+}
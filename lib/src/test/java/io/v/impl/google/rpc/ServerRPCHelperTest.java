@@ -0,0 +1,80 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.impl.google.rpc;
+
+import junit.framework.TestCase;
+
+import io.v.v23.V;
+import io.v.v23.context.VContext;
+import io.v.v23.rpc.ReflectInvoker;
+import io.v.v23.rpc.StreamServerCall;
+import io.v.v23.security.access.Constants;
+import io.v.v23.verror.VException;
+import io.v.v23.vom.VomUtil;
+import io.v.x.jni.test.fortune.FortuneServerImpl;
+
+import java.util.Arrays;
+
+import static io.v.v23.VFutures.sync;
+
+/**
+ * Tests for {@link ServerRPCHelper}.
+ */
+public class ServerRPCHelperTest extends TestCase {
+    private VContext ctx;
+
+    @Override
+    protected void setUp() throws Exception {
+        ctx = V.init();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        ctx.cancel();
+    }
+
+    public void testPrepare() throws Exception {
+        ReflectInvoker invoker = new ReflectInvoker(new FortuneServerImpl());
+        byte[][] tags = sync(ServerRPCHelper.prepare(invoker, ctx, "get"));
+        assertEquals(1, tags.length);
+        assertTrue(Arrays.equals(VomUtil.encode(Constants.READ, Constants.READ.vdlType()),
+                tags[0]));
+        // The tags are encoded only once.
+        assertSame(tags, sync(ServerRPCHelper.prepare(invoker, ctx, "get")));
+        try {
+            sync(ServerRPCHelper.prepare(invoker, ctx, "none"));
+            fail("prepare() call with a non-existent method should raise an exception.");
+        } catch (VException e) {
+            // OK
+        }
+    }
+
+    public void testPrepareSharedByClass() throws Exception {
+        // Invokers for objects of the same class share the prepared methods.
+        byte[][] tags = sync(ServerRPCHelper.prepare(
+                new ReflectInvoker(new FortuneServerImpl()), ctx, "get"));
+        assertSame(tags, sync(ServerRPCHelper.prepare(
+                new ReflectInvoker(new FortuneServerImpl()), ctx, "get")));
+    }
+
+    public void testInvoke() throws Exception {
+        ReflectInvoker invoker = new ReflectInvoker(new FortuneServerImpl());
+        StreamServerCall call = null;
+        byte[][] results = sync(ServerRPCHelper.invoke(invoker, ctx, call, "add",
+                new byte[][]{ VomUtil.encode("test fortune", String.class) }));
+        assertEquals(0, results.length);
+        for (int i = 0; i < 2; i++) {
+            results = sync(ServerRPCHelper.invoke(invoker, ctx, call, "get", new byte[0][]));
+            assertEquals(1, results.length);
+            assertEquals("test fortune", VomUtil.decode(results[0], String.class));
+        }
+        try {
+            sync(ServerRPCHelper.invoke(invoker, ctx, call, "get", new byte[1][]));
+            fail("invoke() call with the wrong number of arguments should raise an exception.");
+        } catch (VException e) {
+            // OK
+        }
+    }
+}
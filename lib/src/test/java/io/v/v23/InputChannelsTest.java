@@ -4,14 +4,23 @@
 
 package io.v.v23;
 
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 
 import junit.framework.TestCase;
 
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -334,6 +343,345 @@ public class InputChannelsTest extends TestCase {
         }
     }
 
+    public void testRecvBatch() throws Exception {
+        {
+            // Channels that don't support batches receive one item at a time.
+            InputChannel<Integer> chan = new ListInputChannel<>(null, -1, 1, 2, 3);
+            assertThat(sync(InputChannels.recvBatch(chan, 10))).containsExactly(1);
+            assertThat(sync(InputChannels.recvBatch(chan, 10))).containsExactly(2);
+        }
+        {
+            BatchListInputChannel<Integer> chan =
+                    new BatchListInputChannel<>(null, 1, 2, 3, 4, 5);
+            assertThat(sync(InputChannels.recvBatch(chan, 2))).containsExactly(1, 2).inOrder();
+            assertThat(sync(InputChannels.recvBatch(chan, 10)))
+                    .containsExactly(3, 4, 5).inOrder();
+            try {
+                sync(InputChannels.recvBatch(chan, 10));
+                fail("Expected InputChannels.recvBatch() to fail");
+            } catch (EndOfFileException e) {
+                // OK
+            }
+        }
+        {
+            // Whole-channel helpers consume batches.
+            final int numElems = 10000;
+            Integer[] elems = new Integer[numElems];
+            for (int i = 0; i < numElems; ++i) {
+                elems[i] = i;
+            }
+            BatchListInputChannel<Integer> chan = new BatchListInputChannel<>(null, elems);
+            assertThat(sync(InputChannels.asList(chan))).isEqualTo(Arrays.asList(elems));
+            assertThat(chan.numBatches).isLessThan(numElems);
+
+            chan = new BatchListInputChannel<>(null, elems);
+            assertThat(InputChannels.asIterable(chan)).containsExactly((Object[]) elems).inOrder();
+            assertThat(chan.numBatches).isLessThan(numElems);
+        }
+        {
+            // Transformed channels keep batching, and skip filtered-out items.
+            VException error = new VException("boo");
+            InputChannel<Integer> chan = InputChannels.transform(ctx,
+                    new BatchListInputChannel<>(error, 1, 2, 3, 4, 5),
+                    new InputChannels.TransformFunction<Integer, Integer>() {
+                        @Override
+                        public Integer apply(Integer from) throws VException {
+                            return from % 2 == 0 ? null : from * 10;
+                        }
+                    });
+            assertThat(sync(InputChannels.recvBatch(chan, 10)))
+                    .containsExactly(10, 30, 50).inOrder();
+            try {
+                sync(InputChannels.recvBatch(chan, 10));
+                fail("Expected InputChannels.recvBatch() to fail");
+            } catch (VException e) {
+                assertThat(e).isEqualTo(error);
+            }
+        }
+        {
+            // A transform error returns the outputs before it, and fails the next receive.
+            final VException error = new VException("boo");
+            BatchListInputChannel<Integer> from =
+                    new BatchListInputChannel<>(null, 1, 2, 3, 4, 5);
+            InputChannel<Integer> chan = InputChannels.transform(ctx, from,
+                    new InputChannels.TransformFunction<Integer, Integer>() {
+                        @Override
+                        public Integer apply(Integer from) throws VException {
+                            if (from == 3) {
+                                throw error;
+                            }
+                            return from * 10;
+                        }
+                    });
+            assertThat(sync(InputChannels.recvBatch(chan, 10))).containsExactly(10, 20).inOrder();
+            try {
+                sync(InputChannels.recvBatch(chan, 10));
+                fail("Expected InputChannels.recvBatch() to fail");
+            } catch (VException e) {
+                assertThat(e).isEqualTo(error);
+            }
+            assertThat(from.numBatches).isEqualTo(1);
+        }
+    }
+
+    public void testAsIterableReadAhead() throws Exception {
+        {
+            VIterable<Integer> it = InputChannels.asIterable(
+                    new ListInputChannel<>(null, -1, 1, 2, 3, 4, 5), 2);
+            assertThat(it).containsExactly(1, 2, 3, 4, 5).inOrder();
+            assertThat(it.error()).isNull();
+        }
+        {
+            // Errors are reported after all the elements received before them.
+            VException error = new VException("boo");
+            VIterable<Integer> it = InputChannels.asIterable(
+                    new BatchListInputChannel<>(error, 1, 2, 3, 4, 5), 4);
+            assertThat(it).containsExactly(1, 2, 3, 4, 5).inOrder();
+            assertThat(it.error()).isEqualTo(error);
+        }
+        {
+            // The iterator holds at most prefetch received elements.
+            BatchListInputChannel<Integer> chan =
+                    new BatchListInputChannel<>(null, 1, 2, 3, 4, 5, 6, 7, 8);
+            Iterator<Integer> it = InputChannels.asIterable(chan, 4).iterator();
+            assertThat(it.next()).isEqualTo(1);
+            assertThat(chan.index).isAtMost(1 + 4);
+            assertThat(it.next()).isEqualTo(2);
+            assertThat(chan.index).isAtMost(2 + 4);
+        }
+    }
+
+    public void testFilterAndLimit() throws Exception {
+        {
+            InputChannel<Integer> chan = InputChannels.limit(ctx, InputChannels.filter(ctx,
+                    new ListInputChannel<>(null, -1, 1, 2, 3, 4, 5, 6, 7, 8),
+                    new Predicate<Integer>() {
+                        @Override
+                        public boolean apply(Integer input) {
+                            return input % 2 == 0;
+                        }
+                    }), 3);
+            assertThat(sync(InputChannels.asList(chan))).containsExactly(2, 4, 6).inOrder();
+        }
+        {
+            BatchListInputChannel<Integer> chan =
+                    new BatchListInputChannel<>(null, 1, 2, 3, 4, 5);
+            InputChannel<Integer> limited = InputChannels.limit(ctx, chan, 3);
+            assertThat(sync(InputChannels.recvBatch(limited, 2))).containsExactly(1, 2).inOrder();
+            assertThat(sync(InputChannels.recvBatch(limited, 10))).containsExactly(3);
+            try {
+                sync(limited.recv());
+                fail("Expected recv() to fail");
+            } catch (EndOfFileException e) {
+                // OK
+            }
+            // The limited channel doesn't read past the limit.
+            assertThat(sync(chan.recv())).isEqualTo(4);
+        }
+    }
+
+    public void testCancelPropagation() throws Exception {
+        final List<SettableFuture<Integer>> received = new ArrayList<>();
+        InputChannel<Integer> pending = new InputChannel<Integer>() {
+            @Override
+            public ListenableFuture<Integer> recv() {
+                SettableFuture<Integer> future = SettableFuture.create();
+                received.add(future);
+                return future;
+            }
+        };
+        InputChannel<Integer> positive = InputChannels.filter(ctx, pending,
+                new Predicate<Integer>() {
+                    @Override
+                    public boolean apply(Integer input) {
+                        return input > 0;
+                    }
+                });
+        positive.recv().cancel(false);
+        assertThat(received).hasSize(1);
+        assertTrue(received.get(0).isCancelled());
+
+        // An input that is skipped starts another receive, which is cancelled too.
+        received.clear();
+        ListenableFuture<Integer> future = positive.recv();
+        received.get(0).set(0);
+        future.cancel(false);
+        assertThat(received).hasSize(2);
+        assertTrue(received.get(1).isCancelled());
+    }
+
+    public void testStackSafety() throws Exception {
+        final int numElems = 100000;
+        Integer[] elems = new Integer[numElems];
+        for (int i = 0; i < numElems; ++i) {
+            elems[i] = i;
+        }
+        Predicate<Integer> isLast = new Predicate<Integer>() {
+            @Override
+            public boolean apply(Integer input) {
+                return input == numElems - 1;
+            }
+        };
+        // Long runs of already-received elements, skipped or not, must not grow the stack.
+        assertThat(sync(InputChannels.filter(ctx, new BatchListInputChannel<>(null, elems), isLast)
+                .recv())).isEqualTo(numElems - 1);
+        assertThat(sync(InputChannels.asList(InputChannels.filter(ctx,
+                new BatchListInputChannel<>(null, elems), isLast)))).containsExactly(numElems - 1);
+        final AtomicInteger count = new AtomicInteger();
+        sync(InputChannels.withCallback(new BatchListInputChannel<>(null, elems),
+                new InputChannelCallback<Integer>() {
+                    @Override
+                    public ListenableFuture<Void> onNext(Integer result) {
+                        count.incrementAndGet();
+                        return null;
+                    }
+                }));
+        assertThat(count.get()).isEqualTo(numElems);
+    }
+
+    public void testAsPublisher() throws Exception {
+        {
+            // Demand is honored, and at most prefetch elements are received ahead of it.
+            Integer[] elems = new Integer[100];
+            for (int i = 0; i < elems.length; ++i) {
+                elems[i] = i;
+            }
+            BatchListInputChannel<Integer> chan = new BatchListInputChannel<>(null, elems);
+            RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+            InputChannels.asPublisher(null, chan, 8).subscribe(subscriber);
+            assertThat(chan.numBatches).isEqualTo(0);
+            subscriber.subscription.request(3);
+            assertThat(subscriber.items).containsExactly(0, 1, 2).inOrder();
+            assertThat(chan.index).isAtMost(3 + 8);
+            subscriber.subscription.request(Long.MAX_VALUE);
+            assertThat(subscriber.items).isEqualTo(Arrays.asList(elems));
+            assertThat(subscriber.completed).isTrue();
+            assertThat(subscriber.error).isNull();
+        }
+        {
+            // Requesting from onNext doesn't grow the stack.
+            Integer[] elems = new Integer[100000];
+            Arrays.fill(elems, 1);
+            RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<Integer>() {
+                @Override
+                public void onNext(Integer item) {
+                    super.onNext(item);
+                    subscription.request(1);
+                }
+            };
+            InputChannels.asPublisher(null, new BatchListInputChannel<>(null, elems), 16)
+                    .subscribe(subscriber);
+            subscriber.subscription.request(1);
+            assertThat(subscriber.items).hasSize(elems.length);
+            assertThat(subscriber.completed).isTrue();
+        }
+        {
+            // Errors are signaled after the elements received before them.
+            VException error = new VException("boo");
+            RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+            InputChannels.asPublisher(null, new ListInputChannel<>(error, -1, 1, 2, 3), 2)
+                    .subscribe(subscriber);
+            subscriber.subscription.request(10);
+            subscriber.await();
+            assertThat(subscriber.items).containsExactly(1, 2, 3).inOrder();
+            assertThat(subscriber.error).isEqualTo(error);
+        }
+        {
+            // Cancelling the subscription cancels the context.
+            VContext cancelCtx = ctx.withCancel();
+            RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+            InputChannels.asPublisher(cancelCtx, new BatchListInputChannel<>(null, 1, 2, 3), 1)
+                    .subscribe(subscriber);
+            subscriber.subscription.request(1);
+            subscriber.subscription.cancel();
+            subscriber.subscription.request(10);
+            assertThat(subscriber.items).containsExactly(1);
+            assertThat(subscriber.completed).isFalse();
+            assertThat(cancelCtx.isCanceled()).isTrue();
+        }
+        {
+            // Non-positive requests are errors.
+            RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+            InputChannels.asPublisher(null, new BatchListInputChannel<>(null, 1), 1)
+                    .subscribe(subscriber);
+            subscriber.subscription.request(0);
+            assertThat(subscriber.error).isInstanceOf(IllegalArgumentException.class);
+        }
+        {
+            // Only one subscriber is allowed.
+            Publisher<Integer> publisher =
+                    InputChannels.asPublisher(null, new BatchListInputChannel<>(null, 1), 1);
+            publisher.subscribe(new RecordingSubscriber<Integer>());
+            RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+            publisher.subscribe(subscriber);
+            assertThat(subscriber.error).isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    private static class RecordingSubscriber<T> implements Subscriber<T> {
+        final List<T> items = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        Subscription subscription;
+        volatile boolean completed;
+        volatile Throwable error;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+        }
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+            done.countDown();
+        }
+        @Override
+        public void onComplete() {
+            completed = true;
+            done.countDown();
+        }
+        void await() throws InterruptedException {
+            done.await();
+        }
+    }
+
+    private static class BatchListInputChannel<T> implements BatchInputChannel<T> {
+        private final List<T> input;
+        private final VException error;
+        private int index;
+        int numBatches;
+
+        @SafeVarargs
+        BatchListInputChannel(VException error, T... elems) {
+            this.input = Arrays.asList(elems);
+            this.error = error;
+        }
+        @Override
+        public ListenableFuture<T> recv() {
+            return Futures.transform(recvBatch(1), new Function<List<T>, T>() {
+                @Override
+                public T apply(List<T> batch) {
+                    return batch.get(0);
+                }
+            });
+        }
+        @Override
+        public synchronized ListenableFuture<List<T>> recvBatch(int max) {
+            if (index >= input.size()) {
+                return Futures.immediateFailedFuture(
+                        error != null ? error : new EndOfFileException(null));
+            }
+            int end = Math.min(input.size(), index + max);
+            List<T> batch = new ArrayList<>(input.subList(index, end));
+            index = end;
+            ++numBatches;
+            return Futures.immediateFuture(batch);
+        }
+    }
+
     private static class ListInputChannel<T> implements InputChannel<T> {
         private static ExecutorService pool = Executors.newSingleThreadExecutor();
         private final List<T> input;
@@ -50,6 +50,38 @@ public class VContextTest extends TestCase {
         assertEquals(2, ctxAB.value("B"));
     }
 
+    public void testValueKeys() {
+        // Keys are compared by their (getClass(), hashCode()) pairs.
+        VContext ctxK = ctx.withValue(new Key(1), "one").withCancel().withValue(new Key(2), "two");
+        assertThat(ctxK.value(new Key(1))).isEqualTo("one");
+        assertThat(ctxK.value(new Key(2))).isEqualTo("two");
+        assertThat(ctxK.value(new Key(3))).isNull();
+        assertThat(ctxK.value(1)).isNull();
+    }
+
+    public void testCancelPropagation() throws Exception {
+        {
+            // Canceling a child created by withValue cancels its parent.
+            VContext parent = ctx.withCancel();
+            VContext child = parent.withValue("A", 1);
+            assertThat(parent.isCanceled()).isFalse();
+            assertThat(child.isCanceled()).isFalse();
+            child.cancel();
+            assertThat(child.isCanceled()).isTrue();
+            assertThat(parent.isCanceled()).isTrue();
+        }
+        {
+            // Canceling a parent cancels its children.
+            VContext parent = ctx.withCancel();
+            VContext child = parent.withValue("A", 1).withCancel();
+            assertThat(child.isCanceled()).isFalse();
+            parent.cancel();
+            assertThat(child.isCanceled()).isTrue();
+            sync(child.onDone());
+            assertThat(child.isCanceled()).isTrue();
+        }
+    }
+
     public void testWithCancel() throws Exception {
         VContext ctxC = ctx.withCancel();
         assertThat(ctxC.isCanceled()).isFalse();
@@ -92,4 +124,17 @@ public class VContextTest extends TestCase {
             assertThat(ctxT.isCanceled()).isTrue();
         }
     }
+
+    private static class Key {
+        private final int id;
+
+        Key(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+    }
 }
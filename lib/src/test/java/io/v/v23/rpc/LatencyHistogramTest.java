@@ -0,0 +1,51 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.v23.rpc;
+
+import junit.framework.TestCase;
+
+public class LatencyHistogramTest extends TestCase {
+    public void testBuckets() {
+        int prevIndex = -1;
+        for (long nanos = 0; nanos < (1L << 39); nanos = nanos * 9 / 8 + 1) {
+            int index = LatencyHistogram.bucketIndex(nanos);
+            assertTrue(index >= prevIndex);
+            long upperBound = LatencyHistogram.bucketUpperBound(index);
+            assertTrue(nanos + " > " + upperBound, nanos <= upperBound);
+            // Relative error of at most 1/32.
+            assertTrue(nanos + " vs " + upperBound, upperBound - nanos <= nanos / 32);
+            prevIndex = index;
+        }
+        assertEquals(LatencyHistogram.bucketIndex((1L << 39) - 1),
+                LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentileNanos(50));
+        for (long i = 1; i <= 1000; ++i) {
+            histogram.record(i * 1000);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000 * 1001 / 2 * 1000, histogram.getTotalNanos());
+        assertEquals(1000000, histogram.getMaxNanos());
+        assertEquals(1000000, histogram.getPercentileNanos(100));
+        assertWithin(500000, histogram.getPercentileNanos(50));
+        assertWithin(990000, histogram.getPercentileNanos(99));
+        assertWithin(1000, histogram.getPercentileNanos(0));
+    }
+
+    public void testNegativeLatency() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getMaxNanos());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(expected + " vs " + actual,
+                actual >= expected && actual - expected <= expected / 32);
+    }
+}
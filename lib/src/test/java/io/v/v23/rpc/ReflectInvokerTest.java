@@ -10,12 +10,14 @@ import static com.google.common.truth.Truth.assert_;
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import junit.framework.TestCase;
 
 import io.v.v23.V;
 import io.v.v23.context.VContext;
 import io.v.v23.security.access.Constants;
+import io.v.v23.vdl.VServer;
 import io.v.v23.vdl.VdlValue;
 import io.v.v23.vdlroot.signature.Interface;
 import io.v.v23.vdlroot.signature.Method;
@@ -24,10 +26,37 @@ import io.v.x.jni.test.fortune.FortuneServerImpl;
 
 import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 import static io.v.v23.VFutures.sync;
 
 public class ReflectInvokerTest extends TestCase {
+    @VServer(serverWrapper = ThrowingServerWrapper.class)
+    public interface ThrowingServer {
+        ListenableFuture<Void> fail(VContext ctx, ServerCall call);
+    }
+
+    public static class ThrowingServerWrapper {
+        private final ThrowingServer server;
+
+        public ThrowingServerWrapper(ThrowingServer server) {
+            this.server = server;
+        }
+
+        public ListenableFuture<Void> fail(VContext ctx, StreamServerCall call) {
+            return server.fail(ctx, call);
+        }
+    }
+
+    public static class ThrowingServerImpl implements ThrowingServer {
+        @Override
+        public ListenableFuture<Void> fail(VContext ctx, ServerCall call) {
+            throw new IllegalStateException("failed");
+        }
+    }
+
     private VContext ctx;
 
     @Override
@@ -70,6 +99,137 @@ public class ReflectInvokerTest extends TestCase {
         }
     }
 
+    public void testInvokeInPlace() throws Exception {
+        ReflectInvoker invoker = new ReflectInvoker(new FortuneServerImpl());
+        StreamServerCall call = null;
+        sync(invoker.invokeInPlace(ctx, call, "add", new Object[]{null, null, "test fortune"}));
+        Object[] results = sync(invoker.invokeInPlace(ctx, call, "get", new Object[2]));
+        assertThat(Arrays.asList(results)).containsExactly("test fortune");
+    }
+
+    public void testMultipleInstances() throws Exception {
+        // Invokers of the same class share the method metadata, but not the service objects.
+        ReflectInvoker first = new ReflectInvoker(new FortuneServerImpl());
+        ReflectInvoker second = new ReflectInvoker(new FortuneServerImpl());
+        StreamServerCall call = null;
+        sync(first.invoke(ctx, call, "add", new Object[]{"first"}));
+        sync(second.invoke(ctx, call, "add", new Object[]{"second"}));
+        assertThat(Arrays.asList(sync(first.invoke(ctx, call, "get", new Object[]{}))))
+                .containsExactly("first");
+        assertThat(Arrays.asList(sync(second.invoke(ctx, call, "get", new Object[]{}))))
+                .containsExactly("second");
+        assertThat(Arrays.asList(sync(second.getMethodTags(ctx, "add"))))
+                .containsExactly(Constants.WRITE);
+    }
+
+    public void testMetrics() throws Exception {
+        ReflectInvoker invoker = new ReflectInvoker(new FortuneServerImpl());
+        MethodMetrics metrics = invoker.getMetrics("get");
+        assertThat(metrics.getMethod()).isEqualTo("get");
+        assertThat(new ReflectInvoker(new FortuneServerImpl()).getMetrics("get"))
+                .isSameAs(metrics);
+        long queued = metrics.getQueueLatency().getCount();
+        long handled = metrics.getHandlerLatency().getCount();
+        StreamServerCall call = null;
+        sync(invoker.invoke(ctx, call, "add", new Object[]{"test fortune"}));
+        sync(invoker.invoke(ctx, call, "get", new Object[]{}));
+        sync(invoker.invoke(ctx, call, "get", new Object[]{}));
+        assertThat(metrics.getQueueLatency().getCount()).isEqualTo(queued + 2);
+        assertThat(metrics.getHandlerLatency().getCount()).isEqualTo(handled + 2);
+        assertThat(ServerMetrics.snapshot()).containsKey(
+                metrics.getService() + ".get.handler.p99");
+    }
+
+    public void testMetricsOfThrowingHandler() throws Exception {
+        ReflectInvoker invoker = new ReflectInvoker(new ThrowingServerImpl());
+        MethodMetrics metrics = invoker.getMetrics("fail");
+        long handled = metrics.getHandlerLatency().getCount();
+        StreamServerCall call = null;
+        try {
+            sync(invoker.invoke(ctx, call, "fail", new Object[]{}));
+            fail("invocation of a throwing method should raise an exception");
+        } catch (VException e) {
+            assertThat(e.getMessage()).contains("failed");
+        }
+        assertThat(metrics.getHandlerLatency().getCount()).isEqualTo(handled + 1);
+    }
+
+    public void testMethodExecutors() throws Exception {
+        ExecutorService serverBulkhead = Bulkheads.newFixedBulkhead("server", 1, 0);
+        ExecutorService methodBulkhead = Bulkheads.newThreadPerCallBulkhead("method", 1);
+        try {
+            ReflectInvoker invoker = new ReflectInvoker(new FortuneServerImpl(), serverBulkhead,
+                    ImmutableMap.<String, Executor>of(
+                            "getServerThread", methodBulkhead));
+            StreamServerCall call = null;
+            assertThat((String) sync(invoker.invoke(
+                    ctx, call, "getServerThread", new Object[]{}))[0]).contains("method-");
+            sync(invoker.invoke(ctx, call, "add", new Object[]{"test fortune"}));
+
+            // Fill the server bulkhead, whose queue is empty.
+            final CountDownLatch running = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(1);
+            serverBulkhead.execute(new Runnable() {
+                @Override
+                public void run() {
+                    running.countDown();
+                    try {
+                        done.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            running.await();
+            try {
+                sync(invoker.invoke(ctx, call, "get", new Object[]{}));
+                fail("invocation on a full bulkhead should raise an exception");
+            } catch (VException e) {
+                assertThat(e.is(Bulkheads.ERR_FULL)).isTrue();
+                assertThat(e.getAction()).isEqualTo(VException.ActionCode.RETRY_BACKOFF);
+            }
+            // Methods with their own bulkhead are unaffected.
+            sync(invoker.invoke(ctx, call, "getServerThread", new Object[]{}));
+            done.countDown();
+        } finally {
+            serverBulkhead.shutdown();
+            methodBulkhead.shutdown();
+        }
+    }
+
+    public void testBackToBackCalls() throws Exception {
+        ExecutorService serverBulkhead = Bulkheads.newFixedBulkhead("server", 1, 0);
+        ExecutorService methodBulkhead = Bulkheads.newThreadPerCallBulkhead("method", 1);
+        try {
+            ReflectInvoker invoker = new ReflectInvoker(new FortuneServerImpl(), serverBulkhead,
+                    ImmutableMap.<String, Executor>of(
+                            "getServerThread", methodBulkhead));
+            StreamServerCall call = null;
+            // A call is out of the bulkhead by the time its reply is received, even if the
+            // thread that ran it is still busy.
+            for (int i = 0; i < 100; i++) {
+                sync(invoker.invoke(ctx, call, "add", new Object[]{"test fortune"}));
+                sync(invoker.invoke(ctx, call, "getServerThread", new Object[]{}));
+            }
+        } finally {
+            serverBulkhead.shutdown();
+            methodBulkhead.shutdown();
+        }
+    }
+
+    public void testMethodExecutorForUnknownMethod() throws Exception {
+        ExecutorService bulkhead = Bulkheads.newFixedBulkhead("server", 1, 1);
+        try {
+            new ReflectInvoker(new FortuneServerImpl(), null,
+                    ImmutableMap.<String, Executor>of("none", bulkhead));
+            fail("an executor for a non-existent method should raise an exception.");
+        } catch (VException e) {
+            // OK
+        } finally {
+            bulkhead.shutdown();
+        }
+    }
+
     public void testGetArgumentTypes() throws Exception {
         ReflectInvoker invoker = new ReflectInvoker(new FortuneServerImpl());
         assertThat(Arrays.asList(
@@ -16,6 +16,7 @@ import io.v.v23.vdl.VdlArray;
 import io.v.v23.vdl.VdlEnum;
 import io.v.v23.vdl.VdlField;
 import io.v.v23.vdl.VdlOptional;
+import io.v.v23.vdl.VdlString;
 import io.v.v23.vdl.VdlType;
 import io.v.v23.vdl.VdlTypeObject;
 import io.v.v23.vdl.VdlUint16;
@@ -85,4 +86,16 @@ public class BinaryEncoderTest extends TestCase {
                     TestUtil.encode(Constants.DEFAULT_VERSION, entry.getKey(), null));
         }
     }
+
+    public void testNullStringFails() throws Exception {
+        try {
+            BinaryEncoder.encodeMessage(Types.STRING, new VdlString(null));
+            fail("Expected encoding a null string to fail");
+        } catch (NullPointerException e) {
+            // OK
+        }
+        // The failed encoding leaves the pooled encoder usable.
+        assertEquals(TestUtil.bytesToHexString(BinaryEncoder.encodeMessage(Types.STRING, "a")),
+                TestUtil.encode(Constants.DEFAULT_VERSION, Types.STRING, "a"));
+    }
 }
@@ -0,0 +1,64 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.v23.vom;
+
+import junit.framework.TestCase;
+
+import io.v.v23.verror.VException;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Tests for the {@link ByteBuffer} variants of {@link VomUtil} encoding and decoding.
+ */
+public class ByteBufferTest extends TestCase {
+    public void testRoundTrip() throws Exception {
+        byte[] payload = new byte[4096];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+        for (ByteBuffer buf : new ByteBuffer[]{
+                ByteBuffer.allocate(8192), ByteBuffer.allocateDirect(8192)}) {
+            VomUtil.encode(payload, byte[].class, buf);
+            VomUtil.encode("foo", String.class, buf);
+            buf.flip();
+            assertTrue(Arrays.equals(payload, (byte[]) VomUtil.decode(buf, byte[].class)));
+            assertEquals("foo", VomUtil.decode(buf, String.class));
+            assertFalse(buf.hasRemaining());
+        }
+    }
+
+    public void testSameAsByteArray() throws Exception {
+        byte[] expected = VomUtil.encode("foo", String.class);
+        ByteBuffer buf = ByteBuffer.allocateDirect(expected.length);
+        VomUtil.encode("foo", String.class, buf);
+        buf.flip();
+        byte[] actual = new byte[buf.remaining()];
+        buf.get(actual);
+        assertTrue(Arrays.equals(expected, actual));
+    }
+
+    public void testOverflow() throws Exception {
+        try {
+            VomUtil.encode("foo", String.class, ByteBuffer.allocate(2));
+            fail("Expected encoding into a too small buffer to fail");
+        } catch (VException e) {
+            // OK
+        }
+    }
+
+    public void testOverflowKeepsPosition() throws Exception {
+        ByteBuffer buf = ByteBuffer.allocate(8);
+        VomUtil.encode(true, Boolean.class, buf);
+        int position = buf.position();
+        try {
+            VomUtil.encode("a longer string", String.class, buf);
+            fail("Expected encoding into a too small buffer to fail");
+        } catch (VException e) {
+            assertEquals(position, buf.position());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.v23.vom;
+
+import junit.framework.TestCase;
+
+import io.v.v23.vdl.Kind;
+import io.v.v23.vdl.Types;
+import io.v.v23.vdl.VdlInt64;
+import io.v.v23.vdl.VdlValue;
+
+/**
+ * Tests for {@link ConversionPlan}.
+ */
+public class ConversionPlanTest extends TestCase {
+    public void testCaching() {
+        ConversionPlan plan = ConversionPlan.get(Types.INT32, Long.class);
+        assertSame(plan, ConversionPlan.get(Types.INT32, Long.class));
+        assertSame(plan.getTarget(), ConversionPlan.target(Long.class));
+        assertEquals(Kind.INT64, plan.getTarget().getKind());
+        assertTrue(plan.isCompatible());
+    }
+
+    public void testGenericTargets() {
+        ConversionPlan plan = ConversionPlan.get(Types.INT64, VdlValue.class);
+        assertEquals(VdlInt64.class, plan.getTarget().getTargetClass());
+        assertTrue(plan.isCompatible());
+        plan = ConversionPlan.get(Types.INT64, Object.class);
+        assertEquals(Long.class, plan.getTarget().getTargetType());
+        assertTrue(plan.isCompatible());
+    }
+
+    public void testIncompatible() throws Exception {
+        assertFalse(ConversionPlan.get(Types.STRING, Long.class).isCompatible());
+        byte[] encoded = VomUtil.encode("foo", String.class);
+        try {
+            TestUtil.decode(encoded, Long.class);
+            fail("Expected decoding a string into a long to fail");
+        } catch (ConversionException e) {
+            // OK
+        }
+    }
+}
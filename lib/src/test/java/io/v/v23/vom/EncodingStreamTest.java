@@ -0,0 +1,61 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.v23.vom;
+
+import com.google.common.collect.ImmutableList;
+
+import junit.framework.TestCase;
+
+import io.v.v23.vdl.Types;
+import io.v.v23.vdl.VdlAny;
+import io.v.v23.vdl.VdlType;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Tests for {@link EncodingStream} and for the pooled encoder used by {@link VomUtil}.
+ */
+public class EncodingStreamTest extends TestCase {
+    private static final long[] UINTS = {0, 1, 0x7f, 0x80, 0xff, 0x100, 0xffff, 0x10000,
+            Integer.MAX_VALUE, 0xffffffffL, 1L << 40, Long.MAX_VALUE, -1, Long.MIN_VALUE};
+
+    public void testWriteUint() throws Exception {
+        for (long value : UINTS) {
+            EncodingStream stream = new EncodingStream();
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            // Write several values, so that the backing array needs to grow.
+            for (int i = 0; i < 10; i++) {
+                assertEquals(value != 0, stream.writeUint(value));
+                BinaryUtil.encodeUint(expected, value);
+            }
+            assertTrue("writeUint(" + value + ")",
+                    Arrays.equals(expected.toByteArray(), stream.toByteArray()));
+        }
+    }
+
+    public void testWriteAsciiString() throws Exception {
+        EncodingStream stream = new EncodingStream();
+        assertTrue(stream.writeAsciiString("hello"));
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        BinaryUtil.encodeBytes(expected, BinaryUtil.getBytes("hello"));
+        assertTrue(Arrays.equals(expected.toByteArray(), stream.toByteArray()));
+
+        assertFalse(stream.writeAsciiString("h\u00e9llo"));
+        assertEquals(expected.size(), stream.size());
+    }
+
+    public void testPooledEncoder() throws Exception {
+        VdlType type = Types.getVdlTypeFromReflect(VdlAny.class);
+        for (String value : new String[]{"a", "b\u00e9", "c"}) {
+            VdlAny any = new VdlAny(Types.listOf(Types.STRING), ImmutableList.of(value));
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            new BinaryEncoder(expected).encodeValue(type, any);
+            // Each message must be a complete stream, with its own type definitions.
+            assertTrue(Arrays.equals(expected.toByteArray(), VomUtil.encode(any, type)));
+            assertEquals(value, TestUtil.decode(VomUtil.encode(value, String.class)));
+        }
+    }
+}
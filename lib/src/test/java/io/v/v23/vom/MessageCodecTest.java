@@ -0,0 +1,63 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.v23.vom;
+
+import junit.framework.TestCase;
+
+import io.v.v23.vdl.Types;
+import io.v.v23.vdl.VdlAny;
+import io.v.v23.vdl.VdlField;
+import io.v.v23.vdl.VdlInt64;
+import io.v.v23.vdl.VdlString;
+import io.v.v23.vdl.VdlStruct;
+import io.v.v23.vdl.VdlType;
+import io.v.v23.vdl.VdlValue;
+
+import java.util.Arrays;
+
+/**
+ * Tests for {@link MessageEncoder} and {@link MessageDecoder}.
+ */
+public class MessageCodecTest extends TestCase {
+    private static final VdlType STRUCT_TYPE = Types.named("StreamItem",
+            Types.structOf(new VdlField("Name", Types.STRING), new VdlField("Count", Types.INT64)));
+
+    private static VdlStruct item(String name, long count) {
+        VdlStruct value = new VdlStruct(STRUCT_TYPE);
+        value.assignField("Name", new VdlString(name));
+        value.assignField("Count", new VdlInt64(count));
+        return value;
+    }
+
+    public void testMessagesAreStandalone() throws Exception {
+        for (Version version : new Version[]{Constants.VERSION_80, Constants.VERSION_81}) {
+            MessageEncoder encoder = new MessageEncoder(version);
+            for (int i = 0; i < 3; i++) {
+                VdlStruct value = item("item" + i, i);
+                byte[] expected = TestUtil.hexStringToBytes(TestUtil.encode(version, value));
+                byte[] actual = encoder.encode(value, STRUCT_TYPE);
+                assertTrue(Arrays.equals(expected, actual));
+            }
+        }
+    }
+
+    public void testRoundTrip() throws Exception {
+        MessageEncoder encoder = new MessageEncoder();
+        MessageDecoder decoder = new MessageDecoder();
+        for (int i = 0; i < 3; i++) {
+            VdlStruct value = item("item" + i, i + 1);
+            assertEquals(value, decoder.decode(encoder.encode(value, STRUCT_TYPE),
+                    VdlValue.class));
+        }
+        for (int i = 0; i < 3; i++) {
+            assertEquals("s" + i, decoder.decode(encoder.encode("s" + i, String.class),
+                    String.class));
+        }
+        for (int i = 0; i < 3; i++) {
+            VdlAny any = new VdlAny(String.class, "any" + i);
+            assertEquals(any, decoder.decode(encoder.encode(any, VdlAny.class), VdlAny.class));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.v23.vom;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Booleans;
+import com.google.common.primitives.Doubles;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import com.google.common.reflect.TypeToken;
+
+import junit.framework.TestCase;
+
+import io.v.v23.vdl.Types;
+import io.v.v23.vdl.VdlType;
+import io.v.v23.vdl.VdlValue;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Tests for the unboxed encoding and decoding of lists of primitive values.
+ */
+public class PrimitiveArrayTest extends TestCase {
+    private static final long[] LONGS = {0, 1, -1, 127, 128, Long.MAX_VALUE, Long.MIN_VALUE};
+    private static final int[] INTS = {0, 1, -1, 127, 128, Integer.MAX_VALUE, Integer.MIN_VALUE};
+    private static final double[] DOUBLES = {0, 1.5, -2.25, Double.MAX_VALUE, Double.MIN_VALUE};
+    private static final boolean[] BOOLS = {true, false, false, true};
+
+    private static void assertRoundTrip(Object array, List<?> boxed, Type boxedType)
+            throws Exception {
+        VdlType type = Types.getVdlTypeFromReflect(array.getClass());
+        for (Version version : new Version[]{Constants.VERSION_80, Constants.VERSION_81}) {
+            String encoded = TestUtil.encode(version, type, array);
+            assertEquals(TestUtil.encode(version, type, boxed), encoded);
+            byte[] bytes = TestUtil.hexStringToBytes(encoded);
+            TestUtil.assertEqual("decode(" + type + ")", array,
+                    TestUtil.decode(bytes, array.getClass()));
+            assertEquals(boxed, TestUtil.decode(bytes, boxedType));
+            assertEquals(encoded, TestUtil.encode(version,
+                    (VdlValue) TestUtil.decode(bytes, VdlValue.class)));
+        }
+    }
+
+    public void testLongs() throws Exception {
+        assertRoundTrip(LONGS, Longs.asList(LONGS), new TypeToken<List<Long>>(){}.getType());
+    }
+
+    public void testInts() throws Exception {
+        assertRoundTrip(INTS, Ints.asList(INTS), new TypeToken<List<Integer>>(){}.getType());
+    }
+
+    public void testDoubles() throws Exception {
+        assertRoundTrip(DOUBLES, Doubles.asList(DOUBLES),
+                new TypeToken<List<Double>>(){}.getType());
+    }
+
+    public void testBools() throws Exception {
+        assertRoundTrip(BOOLS, Booleans.asList(BOOLS),
+                new TypeToken<List<Boolean>>(){}.getType());
+    }
+
+    public void testWidening() throws Exception {
+        byte[] bytes = TestUtil.hexStringToBytes(TestUtil.encode(Constants.DEFAULT_VERSION,
+                Types.getVdlTypeFromReflect(int[].class), INTS));
+        TestUtil.assertEqual("decode([]int32) into long[]",
+                Longs.toArray(Ints.asList(INTS)), TestUtil.decode(bytes, long[].class));
+        assertEquals(ImmutableList.copyOf(Ints.asList(INTS)),
+                TestUtil.decode(bytes, new TypeToken<List<Integer>>(){}.getType()));
+    }
+}
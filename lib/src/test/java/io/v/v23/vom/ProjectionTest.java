@@ -0,0 +1,134 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.v23.vom;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import junit.framework.TestCase;
+
+import io.v.v23.vdl.Types;
+import io.v.v23.vdl.VdlAny;
+import io.v.v23.vdl.VdlStruct;
+import io.v.v23.vdl.VdlTypeObject;
+import io.v.v23.vdl.VdlValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for decoding with a field projection.
+ */
+public class ProjectionTest extends TestCase {
+    private static class Inner {
+        private String name;
+        private List<Long> values;
+
+        public Inner() {
+            this("", ImmutableList.<Long>of());
+        }
+
+        Inner(String name, List<Long> values) {
+            this.name = name;
+            this.values = values;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Inner)) return false;
+            Inner other = (Inner) obj;
+            return name.equals(other.name) && values.equals(other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode();
+        }
+    }
+
+    private static class Row {
+        private long id;
+        private String title;
+        private List<String> tags;
+        private Map<String, Long> counts;
+        private Set<Integer> ids;
+        private VdlAny extra;
+        private double score;
+        private boolean flag;
+        private byte[] blob;
+        private Inner inner;
+        private VdlTypeObject kind;
+        private String last;
+
+        public Row() {
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Row)) return false;
+            Row other = (Row) obj;
+            return id == other.id && title.equals(other.title) && tags.equals(other.tags)
+                    && counts.equals(other.counts) && ids.equals(other.ids)
+                    && extra.equals(other.extra) && score == other.score && flag == other.flag
+                    && Arrays.equals(blob, other.blob) && inner.equals(other.inner)
+                    && kind.equals(other.kind) && last.equals(other.last);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) id;
+        }
+    }
+
+    private static Row newRow() {
+        Row row = new Row();
+        row.id = 42;
+        row.title = "title";
+        row.tags = ImmutableList.of("a", "b");
+        row.counts = ImmutableMap.of("x", 1L, "y", -300L);
+        row.ids = ImmutableSet.of(1, 2, 3);
+        row.extra = new VdlAny(Inner.class, new Inner("extra", ImmutableList.of(7L)));
+        row.score = 3.5;
+        row.flag = true;
+        row.blob = new byte[]{1, 2, 3};
+        row.inner = new Inner("inner", ImmutableList.of(1L, 2L));
+        row.kind = new VdlTypeObject(Types.STRING);
+        row.last = "last";
+        return row;
+    }
+
+    public void testProjection() throws Exception {
+        Row row = newRow();
+        for (Version version : new Version[]{Constants.VERSION_80, Constants.VERSION_81}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            BinaryEncoder encoder = new BinaryEncoder(out, version);
+            encoder.encodeValue(Row.class, row);
+            encoder.encodeValue(Row.class, row);
+            BinaryDecoder decoder = new BinaryDecoder(new ByteArrayInputStream(out.toByteArray()));
+
+            Row projected = (Row) decoder.decodeValue(Row.class, ImmutableSet.of("Id", "Last"));
+            assertEquals(42, projected.id);
+            assertEquals("last", projected.last);
+            assertNull(projected.title);
+            assertNull(projected.inner);
+            // All skipped fields must have been consumed.
+            assertEquals(row, decoder.decodeValue(Row.class));
+        }
+    }
+
+    public void testProjectionIntoVdlValue() throws Exception {
+        byte[] encoded = VomUtil.encode(newRow(), Row.class);
+        VdlStruct projected = (VdlStruct) VomUtil.decode(encoded, VdlValue.class,
+                ImmutableSet.of("Title"));
+        assertEquals("title", projected.getField("Title").toString());
+        assertNull(projected.getField("Id"));
+        assertNull(projected.getField("Extra"));
+    }
+}
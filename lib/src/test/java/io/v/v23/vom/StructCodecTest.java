@@ -0,0 +1,86 @@
+// Copyright 2015 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.v23.vom;
+
+import junit.framework.TestCase;
+
+import io.v.v23.vdl.AbstractVdlStruct;
+import io.v.v23.vdl.GeneratedFromVdl;
+import io.v.v23.vdl.Types;
+import io.v.v23.vdl.VdlField;
+import io.v.v23.vdl.VdlStruct;
+import io.v.v23.vdl.VdlType;
+
+import java.lang.reflect.Field;
+
+/**
+ * Tests for {@link StructCodec}.
+ */
+public class StructCodecTest extends TestCase {
+    @GeneratedFromVdl(name = "io.v.v23.vom.StructCodecTest.Point")
+    private static final class Point extends AbstractVdlStruct {
+        private static final long serialVersionUID = 1L;
+        private static final VdlType VDL_TYPE = Types.getVdlTypeFromReflect(Point.class);
+
+        @GeneratedFromVdl(name = "X", index = 0)
+        private int x;
+        @GeneratedFromVdl(name = "Y", index = 1)
+        private int y;
+        @GeneratedFromVdl(name = "Label", index = 2)
+        private String renamedLabel;
+
+        public Point() {
+            this(0, 0, "");
+        }
+
+        Point(int x, int y, String label) {
+            super(VDL_TYPE);
+            this.x = x;
+            this.y = y;
+            this.renamedLabel = label;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Point)) return false;
+            Point other = (Point) obj;
+            return x == other.x && y == other.y && renamedLabel.equals(other.renamedLabel);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * x + y) + renamedLabel.hashCode();
+        }
+    }
+
+    public void testFieldLookup() throws Exception {
+        StructCodec codec = StructCodec.forClass(Point.class);
+        assertSame(codec, StructCodec.forClass(Point.class));
+        assertEquals("x", codec.field("X").getName());
+        assertEquals("renamedLabel", codec.field("Label").getName());
+        assertNull(codec.field("Z"));
+        assertNull(StructCodec.forClass(VdlStruct.class));
+    }
+
+    public void testFieldsByType() throws Exception {
+        StructCodec codec = StructCodec.forClass(Point.class);
+        VdlType other = Types.structOf(new VdlField("Label", Types.STRING),
+                new VdlField("Z", Types.INT32), new VdlField("X", Types.INT32));
+        Field[] fields = codec.fields(other);
+        assertEquals(3, fields.length);
+        assertEquals("renamedLabel", fields[0].getName());
+        assertNull(fields[1]);
+        assertEquals("x", fields[2].getName());
+        assertSame(fields, codec.fields(other));
+    }
+
+    public void testRoundTrip() throws Exception {
+        Point point = new Point(3, -4, "p");
+        for (Version version : new Version[]{Constants.VERSION_80, Constants.VERSION_81}) {
+            byte[] encoded = TestUtil.hexStringToBytes(TestUtil.encode(version, point));
+            assertEquals(point, TestUtil.decode(encoded, Point.class));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.v23.vom;
+
+import junit.framework.TestCase;
+
+import io.v.v23.vdl.Types;
+import io.v.v23.vdl.VdlField;
+import io.v.v23.vdl.VdlInt64;
+import io.v.v23.vdl.VdlString;
+import io.v.v23.vdl.VdlStruct;
+import io.v.v23.vdl.VdlType;
+import io.v.v23.verror.VException;
+
+import java.util.Arrays;
+
+/**
+ * Tests for {@link WireTypeCache}.
+ */
+public class WireTypeCacheTest extends TestCase {
+    private static class Row {
+        private long id;
+        private String extra;
+
+        public Row() {
+        }
+    }
+
+    private static byte[] encodeRow(VdlField... fields) throws Exception {
+        VdlType type = Types.named("v.io/test.Row", Types.structOf(fields));
+        VdlStruct row = new VdlStruct(type);
+        row.assignField("Id", new VdlInt64(7));
+        if (type.getFields().size() > 1) {
+            row.assignField("Extra", new VdlString("extra"));
+        }
+        return VomUtil.encode(row);
+    }
+
+    public void testHeaderReuse() throws Exception {
+        byte[] data = VomUtil.encode(new Row(), Row.class);
+        WireTypeCache.Header header = WireTypeCache.getHeader(data);
+        assertSame(header, WireTypeCache.getHeader(data));
+        assertSame(header, WireTypeCache.getHeader(Arrays.copyOf(data, data.length)));
+        assertTrue(header.getBytes().length < data.length);
+    }
+
+    public void testTypeVersions() throws Exception {
+        byte[] older = encodeRow(new VdlField("Id", Types.INT64));
+        byte[] newer = encodeRow(new VdlField("Id", Types.INT64),
+                new VdlField("Extra", Types.STRING));
+        assertNotSame(WireTypeCache.getHeader(older), WireTypeCache.getHeader(newer));
+        for (int i = 0; i < 2; i++) {
+            Row row = (Row) VomUtil.decode(older, Row.class);
+            assertEquals(7, row.id);
+            assertNull(row.extra);
+            row = (Row) VomUtil.decode(newer, Row.class);
+            assertEquals(7, row.id);
+            assertEquals("extra", row.extra);
+        }
+    }
+
+    public void testMalformed() throws Exception {
+        byte[] data = VomUtil.encode(new Row(), Row.class);
+        try {
+            VomUtil.decode(Arrays.copyOf(data, 3), Row.class);
+            fail("Expected decoding a truncated message to fail");
+        } catch (VException e) {
+            // OK
+        }
+    }
+}
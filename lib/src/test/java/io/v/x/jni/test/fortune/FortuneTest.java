@@ -16,6 +16,7 @@ import io.v.v23.V;
 import io.v.v23.V23TestUtil;
 import io.v.v23.context.VContext;
 import io.v.v23.naming.GlobReply;
+import io.v.v23.options.RpcServerOptions;
 import io.v.v23.rpc.Client;
 import io.v.v23.rpc.ClientCall;
 import io.v.v23.rpc.Dispatcher;
@@ -415,6 +416,27 @@ public class FortuneTest extends TestCase {
         assertThat(sync(client.get(ctxT))).isEqualTo(firstMessage);
     }
 
+    public void testCustomDispatcherWithMethodExecutor() throws Exception {
+        final FortuneServer server = new FortuneServerImpl();
+        Dispatcher dispatcher = new Dispatcher() {
+            @Override
+            public ServiceObjectWithAuthorizer lookup(String suffix) throws VException {
+                return new ServiceObjectWithAuthorizer(server, null);
+            }
+        };
+        Executor executor = Executors.newSingleThreadExecutor();
+        Thread executorThread = getThread(executor);
+        // Executors for methods the served objects don't implement don't apply to them.
+        ctx = V.withNewServer(ctx, "", dispatcher, new RpcServerOptions()
+                .methodExecutor("getServerThread", executor)
+                .methodExecutor("notAFortuneMethod", executor));
+
+        FortuneClient client = FortuneClientFactory.getFortuneClient(name(ctx));
+        VContext ctxT = ctx.withTimeout(new Duration(20000)); // 20s
+        String serverThreadName = sync(client.getServerThread(ctxT));
+        assertThat(serverThreadName).isEqualTo(executorThread.toString());
+    }
+
     public void testCustomDispatcherReturningAnInvoker() throws Exception {
         Dispatcher dispatcher = new Dispatcher() {
             @Override
@@ -4,12 +4,17 @@
 
 package io.v.syncbase;
 
+import io.v.syncbase.core.KeyValue;
 import io.v.syncbase.core.Permissions;
 import io.v.syncbase.core.VError;
 import io.v.syncbase.exception.SyncbaseException;
 import io.v.v23.verror.VException;
 import io.v.v23.vom.VomUtil;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import static io.v.syncbase.exception.Exceptions.chainThrow;
 
 /**
@@ -58,7 +63,6 @@ public class Collection {
     }
 
     // TODO(sadovsky): Add deleteRange API.
-    // TODO(sadovsky): Maybe add scan API, if developers aren't satisfied with watch.
 
     // TODO(sadovsky): Revisit the get API:
     // - Is the Class<T> argument necessary?
@@ -124,6 +128,169 @@ public class Collection {
         }
     }
 
+    /**
+     * Returns the values associated with {@code keys}, in the order of {@code keys}. Keys without
+     * a value are left out of the result.
+     * <p/>
+     * All values are read from a consistent snapshot: the read runs in the current batch, or in a
+     * new read-only batch if this collection isn't part of one.
+     */
+    public <T> Map<String, T> getMany(List<String> keys, final Class<T> cls)
+            throws SyncbaseException {
+        final String[] keyArray = keys.toArray(new String[keys.size()]);
+        final Map<String, T> result = new LinkedHashMap<>();
+        final Id id = this.getId();
+        Database.BatchOptions opts = new Database.BatchOptions();
+        opts.readOnly = true;
+        runInBatch(new Database.BatchOperation() {
+            @Override
+            public void run(BatchDatabase db) throws SyncbaseException {
+                result.clear();  // The batch may be retried.
+                byte[][] values = null;
+                try {
+                    values = db.getCollection(id).mCoreCollection.getMany(keyArray);
+                } catch (VError vError) {
+                    chainThrow("getting values from collection", id.getName(), vError);
+                }
+                try {
+                    for (int i = 0; i < keyArray.length; i++) {
+                        if (values[i] != null) {
+                            result.put(keyArray[i], (T) VomUtil.decode(values[i], cls));
+                        }
+                    }
+                } catch (VException e) {
+                    chainThrow("decoding values retrieved from collection", id.getName(), e);
+                }
+            }
+        }, opts);
+        return result;
+    }
+
+    /**
+     * Puts each of the given values for its key, overwriting any existing values. Idempotent.
+     * <p/>
+     * All values are written atomically: the write runs in the current batch, or in a new batch
+     * if this collection isn't part of one.
+     */
+    public <T> void putMany(Map<String, T> values) throws SyncbaseException {
+        final String[] keys = new String[values.size()];
+        final byte[][] encoded = new byte[values.size()][];
+        int i = 0;
+        try {
+            for (Map.Entry<String, T> entry : values.entrySet()) {
+                T value = entry.getValue();
+                keys[i] = entry.getKey();
+                encoded[i] = VomUtil.encode(value, value.getClass());
+                i++;
+            }
+        } catch (VException e) {
+            chainThrow("putting values into collection", mId.getName(), e);
+        }
+        final Id id = this.getId();
+        runInBatch(new Database.BatchOperation() {
+            @Override
+            public void run(BatchDatabase db) throws SyncbaseException {
+                try {
+                    db.getCollection(id).mCoreCollection.putMany(keys, encoded);
+                } catch (VError vError) {
+                    chainThrow("putting values into collection", id.getName(), vError);
+                }
+            }
+        }, new Database.BatchOptions());
+    }
+
+    /**
+     * Deletes the values associated with {@code keys}. Idempotent.
+     * <p/>
+     * All values are deleted atomically: the deletion runs in the current batch, or in a new
+     * batch if this collection isn't part of one.
+     */
+    public void deleteMany(List<String> keys) throws SyncbaseException {
+        final String[] keyArray = keys.toArray(new String[keys.size()]);
+        final Id id = this.getId();
+        runInBatch(new Database.BatchOperation() {
+            @Override
+            public void run(BatchDatabase db) throws SyncbaseException {
+                try {
+                    db.getCollection(id).mCoreCollection.deleteMany(keyArray);
+                } catch (VError vError) {
+                    chainThrow("deleting values from collection", id.getName(), vError);
+                }
+            }
+        }, new Database.BatchOptions());
+    }
+
+    // Runs the given operation in the batch this collection is part of, or in a new batch.
+    private void runInBatch(final Database.BatchOperation op, Database.BatchOptions opts)
+            throws SyncbaseException {
+        if (mDatabaseHandle instanceof BatchDatabase) {
+            op.run((BatchDatabase) mDatabaseHandle);
+            return;
+        }
+        // Database.runInBatch doesn't propagate the errors of the operation, and commits the batch
+        // when the operation returns. A failed operation aborts the batch and throws instead, so
+        // that the batch isn't committed; the error is unwrapped below.
+        try {
+            ((Database) mDatabaseHandle).runInBatch(new Database.BatchOperation() {
+                @Override
+                public void run(BatchDatabase db) {
+                    try {
+                        op.run(db);
+                    } catch (SyncbaseException e) {
+                        try {
+                            db.abort();
+                        } catch (SyncbaseException abortError) {
+                            // The operation's error is the one to report.
+                        }
+                        throw new OperationException(e);
+                    }
+                }
+            }, opts);
+        } catch (OperationException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Carries the error of an operation out of Database.runInBatch.
+    private static class OperationException extends RuntimeException {
+        OperationException(SyncbaseException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized SyncbaseException getCause() {
+            return (SyncbaseException) super.getCause();
+        }
+    }
+
+    /**
+     * Returns an iterator over the rows with keys in {@code range}, in key order. Values are only
+     * decoded when requested with {@code Row.getValue}. The iterator must be closed.
+     */
+    public ScanIterator<Row> scan(RowRange range) {
+        return ScanIterator.start(mCoreCollection, range, ScanIterator.DEFAULT_BUFFER_SIZE,
+                new ScanIterator.Converter<Row>() {
+                    @Override
+                    public Row convert(KeyValue keyValue) {
+                        return new Row(keyValue.key, keyValue.value);
+                    }
+                });
+    }
+
+    /**
+     * Returns an iterator over the keys in {@code range}, in key order. The iterator must be
+     * closed.
+     */
+    public ScanIterator<String> scanKeys(RowRange range) {
+        return ScanIterator.start(mCoreCollection, range, ScanIterator.DEFAULT_BUFFER_SIZE,
+                new ScanIterator.Converter<String>() {
+                    @Override
+                    public String convert(KeyValue keyValue) {
+                        return keyValue.key;
+                    }
+                });
+    }
+
     /**
      * FOR ADVANCED USERS. Returns the {@code AccessList} for this collection. Users should
      * typically manipulate access lists via {@code collection.getSyncgroup()}.
@@ -389,6 +389,22 @@ public class Database extends DatabaseHandle {
         }
     }
 
+    /**
+     * What to do with a new batch of watch changes when a handler has fallen behind, i.e., when
+     * {@code maxPendingBatches} batches are already waiting to be handled.
+     */
+    public enum DispatchPolicy {
+        /**
+         * Wait until the handler has caught up. This holds up the watch stream.
+         */
+        BLOCK,
+        /**
+         * Merge the batch into the last waiting batch, keeping only the latest change to each
+         * row or collection.
+         */
+        COALESCE
+    }
+
     /**
      * Options for {@code addWatchChangeHandler}.
      */
@@ -398,6 +414,10 @@ public class Database extends DatabaseHandle {
         final String blessing;
         final String row;
         final boolean showUserdataInternalRow;
+        final DispatchPolicy dispatchPolicy;
+        final int maxPendingBatches;
+        final ResumeMarkerStore resumeMarkerStore;
+        final String resumeMarkerKey;
 
         AddWatchChangeHandlerOptions(Builder builder) {
             resumeMarker = builder.resumeMarker;
@@ -405,6 +425,10 @@ public class Database extends DatabaseHandle {
             blessing = builder.blessing;
             row = builder.row;
             showUserdataInternalRow = builder.showUserdataCollectionRow;
+            dispatchPolicy = builder.dispatchPolicy;
+            maxPendingBatches = builder.maxPendingBatches;
+            resumeMarkerStore = builder.resumeMarkerStore;
+            resumeMarkerKey = builder.resumeMarkerKey;
         }
 
         CollectionRowPattern getCollectionRowPattern() {
@@ -417,14 +441,33 @@ public class Database extends DatabaseHandle {
             private String blessing = WILDCARD;
             private String row = WILDCARD;
             private boolean showUserdataCollectionRow;
+            private DispatchPolicy dispatchPolicy = DispatchPolicy.COALESCE;
+            private int maxPendingBatches = 16;
+            private ResumeMarkerStore resumeMarkerStore;
+            private String resumeMarkerKey;
 
             private static final String WILDCARD = "%";
 
+            /**
+             * Sets the resume marker to watch from: the handler then gets an empty
+             * {@code onInitialState} followed by the changes made after the marker.
+             */
             public Builder setResumeMarker(byte[] resumeMarker) {
                 this.resumeMarker = resumeMarker;
                 return this;
             }
 
+            /**
+             * Saves the resume marker of each batch handled by the handler in {@code store}, under
+             * {@code key}. If no resume marker is set, the watch resumes from the saved marker, so
+             * that a handler added again with the same key only gets the changes made since.
+             */
+            public Builder setResumeMarkerStore(ResumeMarkerStore store, String key) {
+                resumeMarkerStore = store;
+                resumeMarkerKey = key;
+                return this;
+            }
+
             public Builder setCollectionNamePrefix(String prefix) {
                 name = escapePattern(prefix) + WILDCARD;
                 return this;
@@ -446,6 +489,27 @@ public class Database extends DatabaseHandle {
                 return this;
             }
 
+            /**
+             * Sets what to do with new batches when the handler falls behind; the default is
+             * {@code COALESCE}.
+             */
+            public Builder setDispatchPolicy(DispatchPolicy policy) {
+                dispatchPolicy = policy;
+                return this;
+            }
+
+            /**
+             * Sets the number of batches that may wait to be handled before the dispatch policy
+             * applies; the default is 16.
+             */
+            public Builder setMaxPendingBatches(int max) {
+                if (max < 1) {
+                    throw new IllegalArgumentException("maxPendingBatches must be positive: " + max);
+                }
+                maxPendingBatches = max;
+                return this;
+            }
+
             Builder setShowUserdataCollectionRow(boolean shouldShow) {
                 showUserdataCollectionRow = shouldShow;
                 return this;
@@ -474,7 +538,8 @@ public class Database extends DatabaseHandle {
 
         /**
          * Called once, when a watch change handler is added, to provide the initial state of the
-         * values being watched.
+         * values being watched. When the watch resumes from a resume marker, there are no
+         * values.
          */
         void onInitialState(Iterator<WatchChange> values);
 
@@ -491,26 +556,71 @@ public class Database extends DatabaseHandle {
         void onError(Throwable e);
     }
 
-    // TODO(sadovsky): Document which thread the handler methods are called on.
+    /**
+     * Persists the resume markers of watch change handlers, to resume their watches later (see
+     * {@code AddWatchChangeHandlerOptions.Builder.setResumeMarkerStore}).
+     */
+    public interface ResumeMarkerStore {
+        /**
+         * Returns the resume marker saved under {@code key}, or {@code null} if there is none.
+         */
+        byte[] load(String key);
+
+        /**
+         * Saves {@code resumeMarker} under {@code key}, replacing any previous one.
+         */
+        void save(String key, byte[] resumeMarker);
+    }
 
     /**
      * Notifies {@code h} of initial state, and of all subsequent changes to this database.
+     * <p/>
+     * The handler methods are called on the callback executor (see
+     * {@code Syncbase.Options.Builder.setExecutor}). The watch doesn't wait for them: batches are
+     * queued until the handler has handled the previous ones, and when the handler falls behind,
+     * {@code opts.dispatchPolicy} applies.
      */
     public void addWatchChangeHandler(final WatchChangeHandler h, final AddWatchChangeHandlerOptions opts) {
         // Note: Eventually we'll add a watch variant that takes a query, where the query can be
         // constructed using some sort of query builder API.
-        // TODO(sadovsky): Support specifying resumeMarker. Note, watch-from-resumeMarker may be
-        // problematic in that we don't track the governing ACL for changes in the watch log.
-        if (opts.resumeMarker != null && opts.resumeMarker.length != 0) {
-            throw new UnsupportedOperationException("Specifying resumeMarker is not yet supported");
+        // TODO(sadovsky): Watch-from-resumeMarker may be problematic in that we don't track the
+        // governing ACL for changes in the watch log.
+        byte[] resumeMarker = opts.resumeMarker;
+        if ((resumeMarker == null || resumeMarker.length == 0) && opts.resumeMarkerStore != null) {
+            resumeMarker = opts.resumeMarkerStore.load(opts.resumeMarkerKey);
+        }
+        if (resumeMarker != null && resumeMarker.length == 0) {
+            resumeMarker = null;
         }
-
         final AtomicBoolean canceled = new AtomicBoolean(false);
+        final WatchDispatcher dispatcher = new WatchDispatcher(h,
+                Syncbase.sOpts.mCallbackExecutor, opts.dispatchPolicy, opts.maxPendingBatches,
+                opts.resumeMarkerStore, opts.resumeMarkerKey);
+        watch(opts, resumeMarker, canceled, dispatcher);
+
+        synchronized (mWatchChangeHandlersMu) {
+            mWatchChangeHandlers.put(h, new Runnable() {
+                @Override
+                public void run() {
+                    // TODO(alexfandrianto): Implement properly. AtomicBoolean is only a patch.
+                    canceled.set(true);
+                    dispatcher.cancel();
+                }
+            });
+        }
+    }
 
-        mCoreDatabase.watch(null, ImmutableList.of(opts.getCollectionRowPattern()),
+    private void watch(final AddWatchChangeHandlerOptions opts, byte[] resumeMarker,
+                       final AtomicBoolean canceled, final WatchDispatcher dispatcher) {
+        final boolean resuming = resumeMarker != null;
+        if (resuming) {
+            // A resumed watch has no initial state, only the changes made after the marker.
+            dispatcher.onResumed();
+        }
+        mCoreDatabase.watch(resumeMarker, ImmutableList.of(opts.getCollectionRowPattern()),
                 new io.v.syncbase.core.Database.WatchPatternsCallbacks() {
-                    private boolean mGotFirstBatch = false;
-                    private final List<WatchChange> mBatch = new ArrayList<>();
+                    private boolean mGotFirstBatch = resuming;
+                    private List<WatchChange> mBatch = new ArrayList<>();
 
                     @Override
                     public void onChange(io.v.syncbase.core.WatchChange coreWatchChange) {
@@ -529,53 +639,29 @@ public class Database extends DatabaseHandle {
                             mBatch.add(new WatchChange(coreWatchChange));
                         }
                         if (!coreWatchChange.continued) {
-                            final SettableFuture<Boolean> setFuture = SettableFuture.create();
+                            // The batch is handed over to the dispatcher, which may hold on to it.
+                            List<WatchChange> batch = mBatch;
+                            mBatch = new ArrayList<>();
+                            // The last change of a batch, even a filtered out one, has the
+                            // marker to resume after the batch.
+                            byte[] marker = coreWatchChange.resumeMarker;
                             if (!mGotFirstBatch) {
                                 mGotFirstBatch = true;
-                                final List<WatchChange> cpBatch = mBatch;
-                                Syncbase.sOpts.mCallbackExecutor.execute(new Runnable() {
-                                    @Override
-                                    public void run() {
-                                        h.onInitialState(cpBatch.iterator());
-                                        setFuture.set(true);
-                                    }
-                                });
+                                dispatcher.onInitialState(batch, marker);
                             } else {
-                                final List<WatchChange> cpBatch = mBatch;
-                                Syncbase.sOpts.mCallbackExecutor.execute(new Runnable() {
-                                    @Override
-                                    public void run() {
-                                        h.onChangeBatch(cpBatch.iterator());
-                                        setFuture.set(true);
-                                    }
-                                });
-                            }
-                            try {
-                                setFuture.get();
-                            } catch (InterruptedException | ExecutionException e) {
-                                e.printStackTrace();
-                                System.err.println(e.toString());
+                                dispatcher.onChangeBatch(batch, marker);
                             }
-                            mBatch.clear();
                         }
                     }
 
                     @Override
                     public void onError(VError vError) {
                         // TODO(sadovsky): Make sure cancellations are surfaced as such (or ignored).
-                        h.onError(vError);
+                        if (!canceled.get()) {
+                            dispatcher.onError(vError);
+                        }
                     }
                 });
-
-        synchronized (mWatchChangeHandlersMu) {
-            mWatchChangeHandlers.put(h, new Runnable() {
-                @Override
-                public void run() {
-                    // TODO(alexfandrianto): Implement properly. AtomicBoolean is only a patch.
-                    canceled.set(true);
-                }
-            });
-        }
     }
 
     /**
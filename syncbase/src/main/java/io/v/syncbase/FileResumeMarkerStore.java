@@ -0,0 +1,76 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.syncbase;
+
+import android.util.Log;
+
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@code ResumeMarkerStore} that keeps each resume marker in a file of its own, e.g., under
+ * the Syncbase root directory.
+ * <p/>
+ * The markers are local to the device, unlike rows of the userdata collection, which are synced
+ * to the user's other devices.
+ * <p/>
+ * I/O errors are logged, not thrown: a marker that can't be loaded makes the watch start over
+ * with the initial state, and a marker that can't be saved makes it resume from an earlier one.
+ */
+public class FileResumeMarkerStore implements Database.ResumeMarkerStore {
+    private static final String TAG = "FileResumeMarkerStore";
+
+    private final File mDir;
+
+    /**
+     * @param dir the directory to keep the markers in; it is created if needed
+     */
+    public FileResumeMarkerStore(File dir) {
+        mDir = dir;
+    }
+
+    @Override
+    public synchronized byte[] load(String key) {
+        File file = file(key);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            return Files.toByteArray(file);
+        } catch (IOException e) {
+            // Without the marker, the watch starts over with the initial state.
+            Log.e(TAG, "Couldn't load resume marker " + key + " from " + file, e);
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized void save(String key, byte[] resumeMarker) {
+        File file = file(key);
+        File tmp = new File(mDir, file.getName() + ".tmp");
+        try {
+            if (!mDir.isDirectory() && !mDir.mkdirs()) {
+                throw new IOException("Couldn't create " + mDir);
+            }
+            // Replace the marker atomically, so that a crash can't leave a partial one behind.
+            Files.write(resumeMarker, tmp);
+            if (!tmp.renameTo(file)) {
+                throw new IOException("Couldn't rename " + tmp + " to " + file);
+            }
+        } catch (IOException e) {
+            // The previous marker stays; the watch would then resume from an earlier point.
+            Log.e(TAG, "Couldn't save resume marker " + key + " to " + file, e);
+        }
+    }
+
+    private File file(String key) {
+        // Keys are arbitrary strings, file names aren't.
+        return new File(mDir, BaseEncoding.base16().encode(key.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,43 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.syncbase;
+
+import io.v.syncbase.exception.SyncbaseException;
+import io.v.v23.verror.VException;
+import io.v.v23.vom.VomUtil;
+
+import static io.v.syncbase.exception.Exceptions.chainThrow;
+
+/**
+ * A row returned by {@code Collection.scan}. Its value is only decoded when requested.
+ */
+public class Row {
+    private final String mKey;
+    private final byte[] mEncodedValue;
+
+    Row(String key, byte[] encodedValue) {
+        mKey = key;
+        mEncodedValue = encodedValue;
+    }
+
+    /**
+     * Returns the key of the row.
+     */
+    public String getKey() {
+        return mKey;
+    }
+
+    /**
+     * Decodes and returns the value of the row.
+     */
+    public <T> T getValue(Class<T> cls) throws SyncbaseException {
+        try {
+            return (T) VomUtil.decode(mEncodedValue, cls);
+        } catch (VException e) {
+            chainThrow("decoding value of row", mKey, e);
+            throw new AssertionError("never happens");
+        }
+    }
+}
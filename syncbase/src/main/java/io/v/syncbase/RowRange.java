@@ -0,0 +1,68 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.syncbase;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A range of row keys in a collection, for use with {@code Collection.scan}. Keys are ordered
+ * by their UTF-8 bytes.
+ */
+public class RowRange {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final byte[] mStart;
+    private final byte[] mLimit;
+
+    private RowRange(byte[] start, byte[] limit) {
+        mStart = start;
+        mLimit = limit;
+    }
+
+    /**
+     * Returns the range of all keys.
+     */
+    public static RowRange all() {
+        return new RowRange(new byte[0], new byte[0]);
+    }
+
+    /**
+     * Returns the range of keys in {@code [start, limit)}. An empty {@code limit} means no limit.
+     */
+    public static RowRange range(String start, String limit) {
+        return new RowRange(start.getBytes(UTF_8), limit.getBytes(UTF_8));
+    }
+
+    /**
+     * Returns the range of keys starting with {@code prefix}.
+     */
+    public static RowRange prefix(String prefix) {
+        byte[] start = prefix.getBytes(UTF_8);
+        return new RowRange(start, prefixLimit(start));
+    }
+
+    byte[] getStart() {
+        return mStart;
+    }
+
+    byte[] getLimit() {
+        return mLimit;
+    }
+
+    // Returns the smallest key greater than all keys with the given prefix, or an empty array
+    // (no limit) if there is no such key. Same as util.PrefixRangeLimit in Go.
+    private static byte[] prefixLimit(byte[] prefix) {
+        int length = prefix.length;
+        while (length > 0 && prefix[length - 1] == (byte) 0xff) {
+            length--;
+        }
+        byte[] limit = Arrays.copyOf(prefix, length);
+        if (length > 0) {
+            limit[length - 1]++;
+        }
+        return limit;
+    }
+}
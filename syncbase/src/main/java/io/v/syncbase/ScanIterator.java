@@ -0,0 +1,183 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.syncbase;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import io.v.syncbase.core.KeyValue;
+import io.v.syncbase.core.VError;
+import io.v.syncbase.exception.SyncbaseException;
+
+import static io.v.syncbase.exception.Exceptions.chainThrow;
+
+/**
+ * An iterator over the rows of a collection scan, returned by {@code Collection.scan} and
+ * {@code Collection.scanKeys}.
+ * <p/>
+ * Rows are received from Syncbase on a background thread and buffered until the iterator
+ * consumes them. The buffer is bounded: once it is full, the scan waits for the iterator. The
+ * iterator blocks in {@code hasNext} until the next row has been received or the scan is done.
+ * <p/>
+ * If the scan fails, {@code hasNext} and {@code next} throw an {@code IllegalStateException}
+ * caused by the error the scan failed with, once the rows received before the failure have been
+ * consumed, so that a failed scan can't be mistaken for a complete one.
+ * <p/>
+ * The iterator must be closed, typically with a try-with-resources statement. Closing it before
+ * the end of the scan discards the remaining rows; closing it after a failed scan throws the
+ * error the scan failed with, unless the iterator has already thrown it.
+ */
+public class ScanIterator<T> implements Iterator<T>, AutoCloseable {
+    static final int DEFAULT_BUFFER_SIZE = 64;
+
+    // Marks the end of the scan in the buffer.
+    private static final Object END = new Object();
+
+    private static final Executor sScanExecutor = Executors.newCachedThreadPool(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "syncbase-scan");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    /**
+     * Converts a scanned row to an element of the iterator; runs on the scan thread.
+     */
+    interface Converter<T> {
+        T convert(KeyValue keyValue);
+    }
+
+    private final String mCollectionName;
+    private final BlockingQueue<Object> mBuffer;
+    private volatile boolean mClosed;
+    private volatile VError mError;
+    // Only accessed by the consumer.
+    private Object mNext;
+    private boolean mDone;
+    private boolean mErrorThrown;
+
+    private ScanIterator(String collectionName, int bufferSize) {
+        mCollectionName = collectionName;
+        mBuffer = new ArrayBlockingQueue<>(bufferSize);
+    }
+
+    static <T> ScanIterator<T> start(final io.v.syncbase.core.Collection coreCollection,
+                                     final RowRange range, int bufferSize,
+                                     final Converter<T> converter) {
+        final ScanIterator<T> it = new ScanIterator<>(coreCollection.id().name, bufferSize);
+        final io.v.syncbase.internal.Collection.ScanCallbacks callbacks =
+                new io.v.syncbase.internal.Collection.ScanCallbacks() {
+                    @Override
+                    public void onKeyValue(KeyValue keyValue) {
+                        if (!it.mClosed) {
+                            it.offer(converter.convert(keyValue));
+                        }
+                    }
+
+                    @Override
+                    public void onDone(VError vError) {
+                        it.mError = vError;
+                        if (!it.mClosed) {
+                            it.offer(END);
+                        }
+                    }
+                };
+        // The scan is started on its own thread, so that a scan delivering its rows on the
+        // calling thread can't fill up the buffer before the iterator is returned.
+        sScanExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    coreCollection.scan(range.getStart(), range.getLimit(), callbacks);
+                } catch (VError vError) {
+                    callbacks.onDone(vError);
+                }
+            }
+        });
+        return it;
+    }
+
+    private void offer(Object item) {
+        Uninterruptibles.putUninterruptibly(mBuffer, item);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (mNext != null) {
+            return true;
+        }
+        if (mClosed) {
+            return false;
+        }
+        if (!mDone) {
+            Object item = Uninterruptibles.takeUninterruptibly(mBuffer);
+            if (item != END) {
+                mNext = item;
+                return true;
+            }
+            mDone = true;
+        }
+        throwIfFailed();
+        return false;
+    }
+
+    // Throws the error the scan failed with, if any, as an unchecked exception.
+    private void throwIfFailed() {
+        VError error = mError;
+        if (error == null) {
+            return;
+        }
+        mErrorThrown = true;
+        try {
+            chainThrow("scanning collection", mCollectionName, error);
+        } catch (SyncbaseException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T result = (T) mNext;
+        mNext = null;
+        return result;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Can't remove rows from a scan");
+    }
+
+    /**
+     * Stops the scan, discarding any rows not consumed yet.
+     *
+     * @throws SyncbaseException if the scan failed, and {@code hasNext} or {@code next} haven't
+     *                           thrown the error already
+     */
+    @Override
+    public void close() throws SyncbaseException {
+        mClosed = true;
+        mNext = null;
+        // Unblocks the scan thread if it is waiting for room in the buffer.
+        mBuffer.clear();
+        VError error = mError;
+        if (error != null && !mErrorThrown) {
+            chainThrow("scanning collection", mCollectionName, error);
+        }
+    }
+}
@@ -0,0 +1,311 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.syncbase;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Delivers the batches of a watch to a {@code WatchChangeHandler} on the callback executor,
+ * without making the native watch thread wait for the handler (except with the {@code BLOCK}
+ * policy).
+ * <p/>
+ * Batches are queued until the handler has handled the previous ones; at most
+ * {@code maxPendingBatches} batches are queued. When the queue is full, the dispatch policy
+ * decides what happens to a new batch:
+ * <ul>
+ * <li>{@code BLOCK}: the watch thread waits for room in the queue.</li>
+ * <li>{@code COALESCE}: the batch is merged into the last queued one. Changes to the same row
+ * (or collection) are collapsed into the latest change.</li>
+ * </ul>
+ * If a {@code ResumeMarkerStore} is given, the resume marker of each batch is saved once the
+ * handler has handled the batch. Markers are saved on a background thread, so that a slow store
+ * doesn't hold up the callback executor; a marker that hasn't been saved yet is replaced by the
+ * next one, so a burst of batches results in a single write.
+ */
+class WatchDispatcher {
+    // Saves the markers of all the dispatchers, in order.
+    private static final Executor sStoreExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "syncbase-resume-markers");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private final Database.WatchChangeHandler mHandler;
+    private final Executor mExecutor;
+    private final Database.DispatchPolicy mPolicy;
+    private final int mMaxPendingBatches;
+    private final Database.ResumeMarkerStore mStore;
+    private final String mStoreKey;
+    private final Executor mStoreExecutor;
+    // The latest marker to save, or null if it has been saved already.
+    private final AtomicReference<byte[]> mUnsavedMarker = new AtomicReference<>();
+
+    private final Object mMu = new Object();
+    // All the fields below are guarded by mMu.
+    private final ArrayDeque<Delivery> mPending = new ArrayDeque<>();
+    private boolean mScheduled;
+    private boolean mCanceled;
+    // Set once onError has been queued: nothing is queued after it.
+    private boolean mFailed;
+
+    // Only accessed by the drain task, of which at most one is scheduled at a time.
+    private Thread mDrainThread;
+    private boolean mDrainAgain;
+
+    private final Runnable mDrain = new Runnable() {
+        @Override
+        public void run() {
+            if (mDrainThread == Thread.currentThread()) {
+                // Scheduled from drainOne by an executor that runs tasks on the calling thread:
+                // deliver the next batch once drainOne has returned, instead of recursing.
+                mDrainAgain = true;
+                return;
+            }
+            mDrainThread = Thread.currentThread();
+            try {
+                do {
+                    mDrainAgain = false;
+                    drainOne();
+                } while (mDrainAgain);
+            } finally {
+                mDrainThread = null;
+            }
+        }
+    };
+
+    private final Runnable mSave = new Runnable() {
+        @Override
+        public void run() {
+            byte[] marker = mUnsavedMarker.getAndSet(null);
+            if (marker != null) {
+                mStore.save(mStoreKey, marker);
+            }
+        }
+    };
+
+    /**
+     * @param store    where to save the resume markers of the handled batches, or {@code null}
+     * @param storeKey the key of the markers in {@code store}
+     */
+    WatchDispatcher(Database.WatchChangeHandler handler, Executor executor,
+                    Database.DispatchPolicy policy, int maxPendingBatches,
+                    Database.ResumeMarkerStore store, String storeKey) {
+        this(handler, executor, policy, maxPendingBatches, store, storeKey, sStoreExecutor);
+    }
+
+    /**
+     * @param storeExecutor runs the writes to {@code store}; it must run them in order
+     */
+    WatchDispatcher(Database.WatchChangeHandler handler, Executor executor,
+                    Database.DispatchPolicy policy, int maxPendingBatches,
+                    Database.ResumeMarkerStore store, String storeKey, Executor storeExecutor) {
+        mHandler = handler;
+        mExecutor = executor;
+        mPolicy = policy;
+        mMaxPendingBatches = maxPendingBatches;
+        mStore = store;
+        mStoreKey = storeKey;
+        mStoreExecutor = storeExecutor;
+    }
+
+    /**
+     * @param resumeMarker the resume marker at the end of the batch, or {@code null}
+     */
+    void onInitialState(List<WatchChange> values, byte[] resumeMarker) {
+        enqueue(new Delivery(true, false, values, resumeMarker, null));
+    }
+
+    /**
+     * Reports the empty initial state of a watch resumed from a resume marker.
+     */
+    void onResumed() {
+        enqueue(new Delivery(true, true, new ArrayList<WatchChange>(), null, null));
+    }
+
+    /**
+     * @param resumeMarker the resume marker at the end of the batch, or {@code null}
+     */
+    void onChangeBatch(List<WatchChange> changes, byte[] resumeMarker) {
+        enqueue(new Delivery(false, false, changes, resumeMarker, null));
+    }
+
+    void onError(Throwable e) {
+        boolean schedule;
+        synchronized (mMu) {
+            if (mCanceled || mFailed) {
+                return;
+            }
+            mFailed = true;
+            // Errors are never dropped or merged, even if the queue is full.
+            mPending.add(new Delivery(false, false, null, null, e));
+            schedule = shouldSchedule();
+        }
+        if (schedule) {
+            mExecutor.execute(mDrain);
+        }
+    }
+
+    /**
+     * Drops the queued batches; the handler won't be called anymore.
+     */
+    void cancel() {
+        synchronized (mMu) {
+            mCanceled = true;
+            mPending.clear();
+            mMu.notifyAll();
+        }
+    }
+
+    private void enqueue(Delivery delivery) {
+        boolean schedule;
+        synchronized (mMu) {
+            if (mPolicy == Database.DispatchPolicy.BLOCK) {
+                while (!mCanceled && mPending.size() >= mMaxPendingBatches) {
+                    try {
+                        mMu.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+            if (mCanceled || mFailed) {
+                return;
+            }
+            // Nothing is merged into the initial state of a resumed watch: it must stay empty,
+            // since the changes after the marker may delete rows the handler already has.
+            if (mPending.size() < mMaxPendingBatches || mPending.getLast().resumed) {
+                mPending.add(delivery);
+            } else {
+                // COALESCE.
+                mPending.getLast().merge(delivery);
+            }
+            schedule = shouldSchedule();
+        }
+        if (schedule) {
+            mExecutor.execute(mDrain);
+        }
+    }
+
+    // Returns whether the caller must schedule the drain task, once it has released mMu (the
+    // executor may run the task, and so the handler, on the calling thread). Must be called with
+    // mMu held.
+    private boolean shouldSchedule() {
+        if (mScheduled || mPending.isEmpty()) {
+            return false;
+        }
+        mScheduled = true;
+        return true;
+    }
+
+    // Delivers a single batch, so that a busy executor (e.g., the UI thread) can run other tasks
+    // between batches.
+    private void drainOne() {
+        Delivery delivery;
+        synchronized (mMu) {
+            delivery = mPending.poll();
+            if (delivery == null || mCanceled) {
+                mScheduled = false;
+                return;
+            }
+            mMu.notifyAll();
+        }
+        try {
+            if (delivery.error != null) {
+                mHandler.onError(delivery.error);
+            } else if (delivery.initial) {
+                mHandler.onInitialState(delivery.changes());
+            } else {
+                mHandler.onChangeBatch(delivery.changes());
+            }
+            if (mStore != null && delivery.resumeMarker != null
+                    && mUnsavedMarker.getAndSet(delivery.resumeMarker) == null) {
+                // A pending write saves the latest marker when it runs, so only start one if
+                // none is pending.
+                mStoreExecutor.execute(mSave);
+            }
+        } finally {
+            boolean schedule;
+            synchronized (mMu) {
+                mScheduled = false;
+                schedule = shouldSchedule();
+            }
+            if (schedule) {
+                mExecutor.execute(mDrain);
+            }
+        }
+    }
+
+    // The fields that merge changes are guarded by mMu while the delivery is queued; once it has
+    // been polled, only the drain task accesses them.
+    private static final class Delivery {
+        private final boolean initial;
+        // Set on the empty initial state of a resumed watch.
+        private final boolean resumed;
+        private List<WatchChange> changes;
+        // The changes by entity, once a batch has been merged into this delivery (changes is
+        // null then).
+        private Map<List<Object>, WatchChange> merged;
+        private byte[] resumeMarker;
+        private final Throwable error;
+
+        Delivery(boolean initial, boolean resumed, List<WatchChange> changes, byte[] resumeMarker,
+                 Throwable error) {
+            this.initial = initial;
+            this.resumed = resumed;
+            this.changes = changes;
+            this.resumeMarker = resumeMarker;
+            this.error = error;
+        }
+
+        // Appends the given change batch to this delivery, with the changes to each entity
+        // collapsed into the latest one. Merged into an initial state, deletes remove the deleted
+        // entities. Only the new changes are visited, so that merging a burst of batches takes
+        // time linear in the number of changes.
+        void merge(Delivery next) {
+            if (merged == null) {
+                merged = new LinkedHashMap<>();
+                for (WatchChange change : changes) {
+                    merged.put(entityKey(change), change);
+                }
+                changes = null;
+            }
+            for (WatchChange change : next.changes) {
+                List<Object> key = entityKey(change);
+                // Re-insert, so that the latest change (and resume marker) comes last.
+                merged.remove(key);
+                if (!(initial && change.getChangeType() == WatchChange.ChangeType.DELETE)) {
+                    merged.put(key, change);
+                }
+            }
+            if (next.resumeMarker != null) {
+                resumeMarker = next.resumeMarker;
+            }
+        }
+
+        Iterator<WatchChange> changes() {
+            return merged != null ? merged.values().iterator() : changes.iterator();
+        }
+
+        private static List<Object> entityKey(WatchChange change) {
+            return Arrays.<Object>asList(
+                    change.getEntityType(), change.getCollectionId(), change.getRowKey());
+        }
+    }
+}
@@ -4,11 +4,11 @@
 
 package io.v.syncbase.core;
 
-import java.util.Arrays;
-
-import io.v.syncbase.internal.Util;
-
 public class Collection {
+    // Cleared if the loaded native library predates the multi-row calls, in which case they run
+    // one row at a time, within the same batch handle.
+    private static volatile boolean manyRowsSupported = true;
+
     private final String batchHandle;
     private final Id id;
     private final String fullName;
@@ -16,7 +16,7 @@ public class Collection {
     Collection(String parentFullName, Id id, String batchHandle) {
         this.batchHandle = batchHandle;
         this.id = id;
-        this.fullName = Util.NamingJoin(Arrays.asList(parentFullName, id.encode()));
+        this.fullName = Names.join(parentFullName, id.encode());
     }
 
     public Id id() {
@@ -57,9 +57,79 @@ public class Collection {
         new Row(this.fullName, key, this.batchHandle).delete();
     }
 
+    /**
+     * Returns the values of the given rows, in the order of {@code keys}, with {@code null} for
+     * rows that don't exist.
+     * <p/>
+     * This and the other multi-row methods make a single native call, or one call per row if
+     * the native library doesn't support multi-row calls.
+     */
+    public byte[][] getMany(String[] keys) throws VError {
+        if (manyRowsSupported) {
+            try {
+                return io.v.syncbase.internal.Collection.GetMany(fullName, batchHandle, keys);
+            } catch (UnsatisfiedLinkError e) {
+                manyRowsSupported = false;
+            }
+        }
+        byte[][] values = new byte[keys.length][];
+        for (int i = 0; i < keys.length; i++) {
+            try {
+                values[i] = get(keys[i]);
+            } catch (VError vError) {
+                if (!VError.NO_EXIST.equals(vError.id)) {
+                    throw vError;
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Puts {@code values[i]} for {@code keys[i]}, for each {@code i}.
+     */
+    public void putMany(String[] keys, byte[][] values) throws VError {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException(String.format(
+                    "Got %d keys and %d values", keys.length, values.length));
+        }
+        if (manyRowsSupported) {
+            try {
+                io.v.syncbase.internal.Collection.PutMany(fullName, batchHandle, keys, values);
+                return;
+            } catch (UnsatisfiedLinkError e) {
+                manyRowsSupported = false;
+            }
+        }
+        for (int i = 0; i < keys.length; i++) {
+            put(keys[i], values[i]);
+        }
+    }
+
+    public void deleteMany(String[] keys) throws VError {
+        if (manyRowsSupported) {
+            try {
+                io.v.syncbase.internal.Collection.DeleteMany(fullName, batchHandle, keys);
+                return;
+            } catch (UnsatisfiedLinkError e) {
+                manyRowsSupported = false;
+            }
+        }
+        for (String key : keys) {
+            delete(key);
+        }
+    }
+
     public void deleteRange(byte[] start, byte[] limit) throws VError {
         io.v.syncbase.internal.Collection.DeleteRange(fullName, batchHandle, start, limit);
     }
 
-    // TODO(razvanm): Expose scan.
+    /**
+     * Scans the rows with keys in {@code [start, limit)}; an empty {@code limit} means no limit.
+     * The rows and the end of the scan are reported to {@code callbacks}.
+     */
+    public void scan(byte[] start, byte[] limit,
+                     io.v.syncbase.internal.Collection.ScanCallbacks callbacks) throws VError {
+        io.v.syncbase.internal.Collection.Scan(fullName, batchHandle, start, limit, callbacks);
+    }
 }
@@ -24,7 +24,7 @@ public class DatabaseHandle {
     }
 
     public Collection collection(Id id) {
-        return new Collection(new BatchDatabase(this.id, "").fullName, id, "");
+        return new Collection(fullName, id, "");
     }
 
     public List<Id> listCollections() throws VError {
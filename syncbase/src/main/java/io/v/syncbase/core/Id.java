@@ -4,12 +4,12 @@
 
 package io.v.syncbase.core;
 
-import io.v.syncbase.internal.Util;
-
 public class Id {
     public String blessing;
     public String name;
 
+    private Encoding encoding;  // cached result of encode()
+
     public Id() {
         // This empty constructor makes the JNI code a little bit simpler by making this class
         // similar to other classes for which we cache class/method/field IDs.
@@ -24,6 +24,26 @@ public class Id {
     // C API from services/syncbase/bridge/cgo/impl.go.
 
     public String encode() {
-        return Util.EncodeId(this);
+        // The fields are public, so the cached encoding is only used while they are unchanged.
+        String blessing = this.blessing;
+        String name = this.name;
+        Encoding cached = encoding;
+        if (cached == null || cached.blessing != blessing || cached.name != name) {
+            cached = new Encoding(blessing, name, Names.encodeId(blessing, name));
+            encoding = cached;
+        }
+        return cached.value;
+    }
+
+    private static final class Encoding {
+        private final String blessing;
+        private final String name;
+        private final String value;
+
+        Encoding(String blessing, String name, String value) {
+            this.blessing = blessing;
+            this.name = name;
+            this.value = value;
+        }
     }
 }
@@ -0,0 +1,105 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.syncbase.core;
+
+/**
+ * Pure-Java versions of the name encoding functions in {@link io.v.syncbase.internal.Util}, so
+ * that building the names of databases, collections and rows doesn't require native calls.
+ * They follow the rules of the Go functions {@code util.Encode}, {@code util.EncodeId} and
+ * {@code naming.Join}.
+ */
+final class Names {
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * Escapes a name for use as a single element of a Syncbase object name: the {@code '%'} and
+     * {@code '/'} characters are replaced by {@code '%'} followed by their two-digit hex code.
+     */
+    static String encode(String s) {
+        int i = 0;
+        while (i < s.length() && !needsEscape(s.charAt(i))) {
+            ++i;
+        }
+        if (i == s.length()) {
+            return s;
+        }
+        StringBuilder result = new StringBuilder(s.length() + 8);
+        result.append(s, 0, i);
+        for (; i < s.length(); ++i) {
+            char c = s.charAt(i);
+            if (needsEscape(c)) {
+                result.append('%').append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Encodes the given id for use as an element of a Syncbase object name.
+     */
+    static String encodeId(String blessing, String name) {
+        return encode(blessing + "," + name);
+    }
+
+    /**
+     * Joins the given name elements with {@code '/'}, skipping empty elements, reducing runs of
+     * {@code '/'} to a single one and removing a trailing {@code '/'}.
+     */
+    static String join(String... elements) {
+        StringBuilder result = new StringBuilder();
+        for (String element : elements) {
+            if (element.isEmpty()) {
+                continue;
+            }
+            if (result.length() > 0) {
+                result.append('/');
+            }
+            result.append(element);
+        }
+        return clean(result);
+    }
+
+    /**
+     * Joins a name produced by {@link #join} with one more element.
+     */
+    static String join(String name, String element) {
+        if (element.isEmpty()) {
+            return name;
+        }
+        if (name.isEmpty()) {
+            return clean(new StringBuilder(element));
+        }
+        if (element.indexOf('/') < 0) {
+            // The common case: nothing to clean up.
+            return name.equals("/") ? name + element : name + "/" + element;
+        }
+        return clean(new StringBuilder(name.length() + 1 + element.length())
+                .append(name).append('/').append(element));
+    }
+
+    private static String clean(StringBuilder name) {
+        int length = 0;
+        for (int i = 0; i < name.length(); ++i) {
+            char c = name.charAt(i);
+            if (c == '/' && length > 0 && name.charAt(length - 1) == '/') {
+                continue;
+            }
+            name.setCharAt(length++, c);
+        }
+        if (length > 1 && name.charAt(length - 1) == '/') {
+            --length;
+        }
+        name.setLength(length);
+        return name.toString();
+    }
+
+    private static boolean needsEscape(char c) {
+        return c == '%' || c == '/';
+    }
+
+    private Names() {}
+}
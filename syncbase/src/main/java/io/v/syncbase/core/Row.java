@@ -4,10 +4,6 @@
 
 package io.v.syncbase.core;
 
-import java.util.Arrays;
-
-import io.v.syncbase.internal.Util;
-
 public class Row {
     private final String batchHandle;
     private final String key;
@@ -16,7 +12,7 @@ public class Row {
     Row(String parentFullName, String key, String batchHandle) {
         this.batchHandle = batchHandle;
         this.key = key;
-        this.fullName = Util.NamingJoin(Arrays.asList(parentFullName, key));
+        this.fullName = Names.join(parentFullName, key);
     }
 
     public String key() {
@@ -17,6 +17,12 @@ public class Collection {
     public static native boolean Exists(String name, String batchHandle) throws VError;
     public static native void DeleteRange(String name, String batchHandle, byte[] start, byte[] limit) throws VError;
 
+    // Multi-row operations: each one runs as a single native call. GetMany returns the values in
+    // the order of the keys, with null for keys that have no value.
+    public static native byte[][] GetMany(String name, String batchHandle, String[] keys) throws VError;
+    public static native void PutMany(String name, String batchHandle, String[] keys, byte[][] values) throws VError;
+    public static native void DeleteMany(String name, String batchHandle, String[] keys) throws VError;
+
     public interface ScanCallbacks {
         void onKeyValue(KeyValue keyValue);
         void onDone(VError vError);
@@ -12,6 +12,11 @@ import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 
@@ -19,6 +24,9 @@ import io.v.syncbase.DatabaseHandle.CollectionOptions;
 import io.v.syncbase.exception.SyncbaseException;
 
 import static io.v.syncbase.TestUtil.setUpDatabase;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class CollectionTest {
     @Rule
@@ -66,4 +74,59 @@ public class CollectionTest {
         thrown.expectMessage("Must not call getSyncgroup within batch");
         collection.getSyncgroup();
     }
+
+    @Test
+    public void manyRows() throws SyncbaseException {
+        Collection collection = Syncbase.database().createCollection(
+                new CollectionOptions().setWithoutSyncgroup(true));
+        Map<String, String> values = new HashMap<>();
+        values.put("a", "value-a");
+        values.put("b", "value-b");
+        values.put("c", "value-c");
+        collection.putMany(values);
+        assertEquals("value-b", collection.get("b", String.class));
+
+        Map<String, String> got = collection.getMany(Arrays.asList("c", "missing", "a"),
+                String.class);
+        assertEquals(Arrays.asList("c", "a"), new ArrayList<>(got.keySet()));
+        assertEquals("value-c", got.get("c"));
+        assertEquals("value-a", got.get("a"));
+
+        collection.deleteMany(Arrays.asList("a", "b"));
+        assertFalse(collection.exists("a"));
+        assertFalse(collection.exists("b"));
+        assertTrue(collection.exists("c"));
+    }
+
+    @Test
+    public void scan() throws SyncbaseException {
+        Collection collection = Syncbase.database().createCollection(
+                new CollectionOptions().setWithoutSyncgroup(true));
+        collection.put("a1", "value-a1");
+        collection.put("a2", "value-a2");
+        collection.put("b1", "value-b1");
+
+        List<String> keys = new ArrayList<>();
+        try (ScanIterator<Row> it = collection.scan(RowRange.prefix("a"))) {
+            while (it.hasNext()) {
+                Row row = it.next();
+                keys.add(row.getKey());
+                assertEquals("value-" + row.getKey(), row.getValue(String.class));
+            }
+        }
+        assertEquals(Arrays.asList("a1", "a2"), keys);
+
+        keys.clear();
+        try (ScanIterator<String> it = collection.scanKeys(RowRange.all())) {
+            while (it.hasNext()) {
+                keys.add(it.next());
+            }
+        }
+        assertEquals(Arrays.asList("a1", "a2", "b1"), keys);
+
+        // Closing the iterator early stops the scan.
+        try (ScanIterator<String> it = collection.scanKeys(RowRange.range("a2", ""))) {
+            assertEquals("a2", it.next());
+        }
+    }
 }
@@ -0,0 +1,35 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.syncbase;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class FileResumeMarkerStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void saveAndLoad() {
+        File dir = new File(folder.getRoot(), "markers");
+        FileResumeMarkerStore store = new FileResumeMarkerStore(dir);
+
+        assertThat(store.load("handler/1")).isNull();
+
+        store.save("handler/1", new byte[]{1, 2});
+        store.save("handler/1", new byte[]{3});
+        store.save("handler/2", new byte[]{4});
+
+        assertThat(store.load("handler/1")).isEqualTo(new byte[]{3});
+        assertThat(store.load("handler/2")).isEqualTo(new byte[]{4});
+        // A new store over the same directory sees the saved markers.
+        assertThat(new FileResumeMarkerStore(dir).load("handler/1")).isEqualTo(new byte[]{3});
+    }
+}
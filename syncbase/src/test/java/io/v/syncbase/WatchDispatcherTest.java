@@ -0,0 +1,218 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.syncbase;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class WatchDispatcherTest {
+    private static class ManualExecutor implements Executor {
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.poll().run();
+            }
+        }
+    }
+
+    private static class RecordingHandler implements Database.WatchChangeHandler {
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void onInitialState(Iterator<WatchChange> values) {
+            calls.add("initial" + describe(values));
+        }
+
+        @Override
+        public void onChangeBatch(Iterator<WatchChange> changes) {
+            calls.add("batch" + describe(changes));
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            calls.add("error");
+        }
+
+        private static String describe(Iterator<WatchChange> changes) {
+            List<String> result = new ArrayList<>();
+            while (changes.hasNext()) {
+                WatchChange change = changes.next();
+                result.add(change.getChangeType() + " " + change.getRowKey());
+            }
+            return result.toString();
+        }
+    }
+
+    private static WatchChange change(io.v.syncbase.core.WatchChange.ChangeType type, String row) {
+        io.v.syncbase.core.WatchChange change = new io.v.syncbase.core.WatchChange();
+        change.entityType = io.v.syncbase.core.WatchChange.EntityType.ROW;
+        change.collection = new io.v.syncbase.core.Id("blessing", "collection");
+        change.row = row;
+        change.changeType = type;
+        return new WatchChange(change);
+    }
+
+    private static WatchChange put(String row) {
+        return change(io.v.syncbase.core.WatchChange.ChangeType.PUT, row);
+    }
+
+    private static WatchChange delete(String row) {
+        return change(io.v.syncbase.core.WatchChange.ChangeType.DELETE, row);
+    }
+
+    @Test
+    public void coalesce() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingHandler handler = new RecordingHandler();
+        WatchDispatcher dispatcher = new WatchDispatcher(handler, executor,
+                Database.DispatchPolicy.COALESCE, 1, null, null);
+
+        dispatcher.onInitialState(Arrays.asList(put("a"), put("b")), null);
+        dispatcher.onChangeBatch(Arrays.asList(put("a"), put("c")), null);
+        dispatcher.onChangeBatch(Arrays.asList(delete("b")), null);
+        executor.runAll();
+
+        assertThat(handler.calls).containsExactly("initial[PUT a, PUT c]").inOrder();
+
+        dispatcher.onChangeBatch(Arrays.asList(put("a")), null);
+        dispatcher.onChangeBatch(Arrays.asList(delete("b"), put("c")), null);
+        dispatcher.onChangeBatch(Arrays.asList(delete("a")), null);
+        executor.runAll();
+
+        assertThat(handler.calls).containsExactly(
+                "initial[PUT a, PUT c]", "batch[DELETE b, PUT c, DELETE a]").inOrder();
+    }
+
+    @Test
+    public void coalesceAfterResume() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingHandler handler = new RecordingHandler();
+        WatchDispatcher dispatcher = new WatchDispatcher(handler, executor,
+                Database.DispatchPolicy.COALESCE, 1, null, null);
+
+        dispatcher.onResumed();
+        dispatcher.onChangeBatch(Arrays.asList(put("a"), delete("b")), null);
+        dispatcher.onChangeBatch(Arrays.asList(delete("c")), null);
+        executor.runAll();
+
+        // The deletes are kept, and nothing is reported as the initial state.
+        assertThat(handler.calls).containsExactly(
+                "initial[]", "batch[PUT a, DELETE b, DELETE c]").inOrder();
+    }
+
+    @Test
+    public void cancelAndError() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingHandler handler = new RecordingHandler();
+        WatchDispatcher dispatcher = new WatchDispatcher(handler, executor,
+                Database.DispatchPolicy.COALESCE, 16, null, null);
+
+        dispatcher.onInitialState(new ArrayList<WatchChange>(), null);
+        dispatcher.onError(new Exception());
+        dispatcher.onChangeBatch(Arrays.asList(put("a")), null);
+        executor.runAll();
+        assertThat(handler.calls).containsExactly("initial[]", "error").inOrder();
+
+        handler.calls.clear();
+        dispatcher = new WatchDispatcher(handler, executor,
+                Database.DispatchPolicy.COALESCE, 16, null, null);
+        dispatcher.onInitialState(new ArrayList<WatchChange>(), null);
+        dispatcher.cancel();
+        executor.runAll();
+        assertThat(handler.calls).isEmpty();
+    }
+
+    @Test
+    public void directExecutor() {
+        final Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                task.run();
+            }
+        };
+        final WatchDispatcher[] dispatcher = new WatchDispatcher[1];
+        final Set<Integer> stackDepths = new HashSet<>();
+        RecordingHandler handler = new RecordingHandler() {
+            @Override
+            public void onInitialState(Iterator<WatchChange> values) {
+                super.onInitialState(values);
+                // Queued while the initial state is being handled.
+                for (int i = 0; i < 100; i++) {
+                    dispatcher[0].onChangeBatch(Arrays.asList(put("row" + i)), null);
+                }
+            }
+
+            @Override
+            public void onChangeBatch(Iterator<WatchChange> changes) {
+                super.onChangeBatch(changes);
+                stackDepths.add(Thread.currentThread().getStackTrace().length);
+            }
+        };
+        dispatcher[0] = new WatchDispatcher(handler, executor,
+                Database.DispatchPolicy.COALESCE, 100, null, null);
+
+        dispatcher[0].onInitialState(new ArrayList<WatchChange>(), null);
+
+        assertThat(handler.calls).hasSize(101);
+        assertThat(handler.calls.get(1)).isEqualTo("batch[PUT row0]");
+        assertThat(handler.calls.get(100)).isEqualTo("batch[PUT row99]");
+        // The batches are delivered one after the other, not from nested calls.
+        assertThat(stackDepths).hasSize(1);
+    }
+
+    @Test
+    public void saveResumeMarkers() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingHandler handler = new RecordingHandler();
+        final Map<String, byte[]> saved = new HashMap<>();
+        Database.ResumeMarkerStore store = new Database.ResumeMarkerStore() {
+            @Override
+            public byte[] load(String key) {
+                return saved.get(key);
+            }
+
+            @Override
+            public void save(String key, byte[] resumeMarker) {
+                saved.put(key, resumeMarker);
+            }
+        };
+        ManualExecutor storeExecutor = new ManualExecutor();
+        WatchDispatcher dispatcher = new WatchDispatcher(handler, executor,
+                Database.DispatchPolicy.COALESCE, 16, store, "key", storeExecutor);
+
+        dispatcher.onInitialState(Arrays.asList(put("a")), new byte[]{1});
+        executor.runAll();
+        assertThat(saved).isEmpty();
+        storeExecutor.runAll();
+        assertThat(saved.get("key")).isEqualTo(new byte[]{1});
+
+        dispatcher.onChangeBatch(Arrays.asList(put("b")), new byte[]{2});
+        dispatcher.onChangeBatch(Arrays.asList(put("c")), new byte[]{3});
+        executor.runAll();
+        // The markers are saved off the callback executor, and only the latest one is written.
+        assertThat(handler.calls).hasSize(3);
+        assertThat(storeExecutor.tasks).hasSize(1);
+        storeExecutor.runAll();
+        assertThat(saved.get("key")).isEqualTo(new byte[]{3});
+    }
+}
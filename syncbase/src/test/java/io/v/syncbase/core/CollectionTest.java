@@ -14,9 +14,11 @@ import java.util.List;
 
 import static io.v.syncbase.core.TestConstants.anyCollectionPermissions;
 import static io.v.syncbase.core.TestConstants.anyDbPermissions;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -149,4 +151,35 @@ public class CollectionTest {
             fail(vError.toString());
         }
     }
+
+    @Test
+    public void manyRows() {
+        Id dbId = new Id("idp:a:angrybirds", "core_many_rows");
+        Id collectionId = new Id("...", "collection");
+        // Reference: release/go/src/v.io/v23/vom/testdata/data81/vomdata.vdl
+        byte[] vomValue = {(byte)0x81, 0x06, 0x03, 'a', 'b', 'c'};
+        String[] keys = {"a", "b", "c"};
+        try {
+            Database db = Service.database(dbId);
+            db.create(anyDbPermissions());
+            Collection collection = db.collection(collectionId);
+            collection.create(anyCollectionPermissions());
+            collection.putMany(keys, new byte[][]{vomValue, vomValue, vomValue});
+            assertTrue(collection.row("b").exists());
+
+            byte[][] values = collection.getMany(new String[]{"c", "missing", "a"});
+            assertEquals(3, values.length);
+            assertArrayEquals(vomValue, values[0]);
+            assertNull(values[1]);
+            assertArrayEquals(vomValue, values[2]);
+
+            collection.deleteMany(new String[]{"a", "b"});
+            assertFalse(collection.row("a").exists());
+            assertFalse(collection.row("b").exists());
+            assertTrue(collection.row("c").exists());
+        } catch (VError vError) {
+            vError.printStackTrace();
+            fail(vError.toString());
+        }
+    }
 }
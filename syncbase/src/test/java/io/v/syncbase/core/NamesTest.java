@@ -0,0 +1,78 @@
+// Copyright 2016 The Vanadium Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style
+// license that can be found in the LICENSE file.
+
+package io.v.syncbase.core;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import io.v.syncbase.internal.Util;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the pure-Java name functions against the Go ones on the same test vectors.
+ */
+public class NamesTest {
+    private static final String[] ENCODE_VECTORS = {
+            "", "string", "part1/part2", "part1%part2", "%2F", "/%/", "a,b", "日本/語", "@@/@@",
+    };
+
+    private static final String[][] JOIN_VECTORS = {
+            {},
+            {""},
+            {"a", "b", "c"},
+            {"a/", "/b"},
+            {"", "a", ""},
+            {"/", "a"},
+            {"/"},
+            {"a//b/"},
+            {"/a", "b//", "//c"},
+            {"db,name/coll,name", "key"},
+            {"db,name/coll,name", "key/with//slashes/"},
+            {"db,name/coll,name", ""},
+    };
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        System.loadLibrary("syncbase");
+    }
+
+    @Test
+    public void testEncode() {
+        for (String s : ENCODE_VECTORS) {
+            assertEquals(s, Util.Encode(s), Names.encode(s));
+        }
+    }
+
+    @Test
+    public void testEncodeId() {
+        for (String blessing : ENCODE_VECTORS) {
+            for (String name : ENCODE_VECTORS) {
+                Id id = new Id(blessing, name);
+                assertEquals(Util.EncodeId(id), id.encode());
+            }
+        }
+        // The cached encoding follows changes of the fields.
+        Id id = new Id("blessing", "name");
+        assertEquals("blessing,name", id.encode());
+        id.name = "other/name";
+        assertEquals(Util.EncodeId(id), id.encode());
+    }
+
+    @Test
+    public void testJoin() {
+        for (String[] elements : JOIN_VECTORS) {
+            String expected = Util.NamingJoin(Arrays.asList(elements));
+            assertEquals(Arrays.toString(elements), expected, Names.join(elements));
+            if (elements.length == 2) {
+                String name = Names.join(elements[0]);
+                assertEquals(Arrays.toString(elements), Util.NamingJoin(
+                        Arrays.asList(name, elements[1])), Names.join(name, elements[1]));
+            }
+        }
+    }
+}